@@ -1,47 +1,130 @@
 package ua.zhenya.cloudstorage.aop;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.stereotype.Component;
+import ua.zhenya.cloudstorage.dto.ResourcePageResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.properties.LoggingProperties;
 
-import java.util.Arrays;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Logs service calls slower than {@code storage.logging.slow-call-threshold} and failed calls, plus a sample of the
+ * remaining calls at {@code storage.logging.sample-rate} (or a per-method rate from
+ * {@code storage.logging.method-sample-rates}). Arguments and results are only rendered for calls that are logged,
+ * and are summarized: collections by their size, resources by their path, other responses and streams by their type,
+ * and text cut to {@code storage.logging.max-value-length} characters.
+ */
 @Aspect
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class ServiceLoggingAspect {
+    private final LoggingProperties loggingProperties;
+    private final Map<JoinPoint.StaticPart, Double> sampleRates = new ConcurrentHashMap<>();
 
     @Pointcut("execution(public * ua.zhenya.cloudstorage.service.impl.ResourceServiceImpl.*(..))")
     public void resourceServicePublicMethods() {}
 
     @Around("resourceServicePublicMethods()")
     public Object logServiceMethodExecution(ProceedingJoinPoint joinPoint) throws Throwable {
-        String className = joinPoint.getSignature().getDeclaringTypeName();
-        String methodName = joinPoint.getSignature().getName();
-        Object[] methodArgs = joinPoint.getArgs();
-
-        log.info("Enter: {}.{}() with argument[s] = {}", className, methodName, Arrays.toString(methodArgs));
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
         Object result;
         try {
             result = joinPoint.proceed();
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-
-            log.info("Exit: {}.{}() with result = {}. Execution time = {} ms", className, methodName, result, duration);
-            return result;
+        } catch (CloudStorageException e) {
+            if (log.isInfoEnabled())
+                log.info("Rejected: {}.{}({}) with status {} and message = '{}'. Execution time = {} ms",
+                        className(joinPoint), methodName(joinPoint), summarizeArguments(joinPoint.getArgs()),
+                        e.getStatus().value(), e.getMessage(), elapsedMillis(startTime));
+            throw e;
         } catch (Throwable throwable) {
-            long endTime = System.currentTimeMillis();
-            long duration = endTime - startTime;
-            log.error("Exception in {}.{}() with cause = '{}' and message = '{}'. Execution time = {} ms",
-                    className, methodName,
-                    throwable.getCause() != null ? throwable.getCause() : "NULL",
-                    throwable.getMessage(), duration,
-                    throwable);
+            log.error("Exception in {}.{}({}). Execution time = {} ms",
+                    className(joinPoint), methodName(joinPoint), summarizeArguments(joinPoint.getArgs()),
+                    elapsedMillis(startTime), throwable);
             throw throwable;
         }
+
+        long durationNanos = System.nanoTime() - startTime;
+        if (durationNanos >= loggingProperties.getSlowCallThreshold().toNanos()) {
+            if (log.isWarnEnabled())
+                log.warn("Slow call: {}.{}({}) with result = {}. Execution time = {} ms",
+                        className(joinPoint), methodName(joinPoint), summarizeArguments(joinPoint.getArgs()),
+                        summarize(result), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        } else if (log.isInfoEnabled() && isSampled(joinPoint)) {
+            log.info("Call: {}.{}({}) with result = {}. Execution time = {} ms",
+                    className(joinPoint), methodName(joinPoint), summarizeArguments(joinPoint.getArgs()),
+                    summarize(result), TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+        return result;
+    }
+
+    private boolean isSampled(JoinPoint joinPoint) {
+        double sampleRate = sampleRates.computeIfAbsent(joinPoint.getStaticPart(), staticPart ->
+                loggingProperties.getMethodSampleRates().getOrDefault(staticPart.getSignature().getName(), loggingProperties.getSampleRate()));
+        return sampleRate >= 1.0 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private String summarizeArguments(Object[] args) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Object arg : args)
+            joiner.add(summarize(arg));
+        return joiner.toString();
+    }
+
+    /**
+     * Renders a value without walking it: lazily produced values such as iterables and streams are never consumed, and
+     * no value is rendered in full only to be cut afterwards.
+     */
+    private String summarize(Object value) {
+        if (value == null)
+            return "null";
+        if (value instanceof Collection<?> collection)
+            return value.getClass().getSimpleName() + "[size=" + collection.size() + "]";
+        if (value instanceof Map<?, ?> map)
+            return value.getClass().getSimpleName() + "[size=" + map.size() + "]";
+        if (value.getClass().isArray())
+            return value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+        if (value instanceof ResourcePageResponse page)
+            return "ResourcePageResponse[items=" + page.getItems().size() + ", continuationToken=" + page.getContinuationToken() + "]";
+        if (value instanceof ResourceResponse resource)
+            return "ResourceResponse[path=" + truncate(resource.getPath()) + ", type=" + resource.getType() + "]";
+        if (value instanceof CharSequence text)
+            return truncate(text);
+        if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>)
+            return value.toString();
+        return value.getClass().getSimpleName();
+    }
+
+    private String truncate(CharSequence value) {
+        if (value == null)
+            return "null";
+        int maxLength = loggingProperties.getMaxValueLength();
+        return value.length() <= maxLength ? value.toString() : value.subSequence(0, maxLength) + "...(" + value.length() + " chars)";
+    }
+
+    private static String className(JoinPoint joinPoint) {
+        return joinPoint.getSignature().getDeclaringType().getSimpleName();
+    }
+
+    private static String methodName(JoinPoint joinPoint) {
+        return joinPoint.getSignature().getName();
+    }
+
+    private static long elapsedMillis(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
     }
 }
@@ -0,0 +1,114 @@
+package ua.zhenya.cloudstorage.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.stereotype.Component;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public storage operation as {@code storage.operation} with a percentile histogram, tagged by class,
+ * method and outcome, and counts failures as {@code storage.operation.errors} tagged by exception and status. An
+ * operation returning a future is timed until the future completes.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageMetricsAspect {
+    private static final String OPERATION_TIMER = "storage.operation";
+    private static final String OPERATION_ERRORS = "storage.operation.errors";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<JoinPoint.StaticPart, OperationMeters> operationMeters = new ConcurrentHashMap<>();
+
+    @Pointcut("execution(public * ua.zhenya.cloudstorage.service.impl.ResourceServiceImpl.*(..))"
+            + " || execution(public * ua.zhenya.cloudstorage.service.impl.MinioServiceImpl.*(..))"
+            + " || execution(public * ua.zhenya.cloudstorage.service.impl.MinioAsyncServiceImpl.*(..))")
+    public void storageOperations() {}
+
+    @Around("storageOperations()")
+    public Object timeStorageOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        OperationMeters meters = operationMeters.computeIfAbsent(joinPoint.getStaticPart(), OperationMeters::new);
+        long startTime = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable throwable) {
+            meters.recordFailure(System.nanoTime() - startTime, throwable);
+            throw throwable;
+        }
+
+        if (result instanceof CompletableFuture<?> future)
+            return future.whenComplete((value, throwable) -> {
+                if (throwable == null)
+                    meters.recordSuccess(System.nanoTime() - startTime);
+                else
+                    meters.recordFailure(System.nanoTime() - startTime,
+                            throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+            });
+
+        meters.recordSuccess(System.nanoTime() - startTime);
+        return result;
+    }
+
+    private class OperationMeters {
+        private final String className;
+        private final String methodName;
+        private final Timer success;
+        private final Timer failure;
+        private final Map<ErrorCause, Counter> errors = new ConcurrentHashMap<>();
+
+        OperationMeters(JoinPoint.StaticPart staticPart) {
+            className = staticPart.getSignature().getDeclaringType().getSimpleName();
+            methodName = staticPart.getSignature().getName();
+            success = timer("success");
+            failure = timer("error");
+        }
+
+        void recordSuccess(long durationNanos) {
+            success.record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void recordFailure(long durationNanos, Throwable throwable) {
+            failure.record(durationNanos, TimeUnit.NANOSECONDS);
+            String status = throwable instanceof CloudStorageException cloudStorageException
+                    ? String.valueOf(cloudStorageException.getStatus().value())
+                    : "none";
+            errors.computeIfAbsent(new ErrorCause(throwable.getClass(), status), this::errorCounter).increment();
+        }
+
+        private Counter errorCounter(ErrorCause cause) {
+            return Counter.builder(OPERATION_ERRORS)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("exception", cause.exceptionType().getSimpleName())
+                    .tag("status", cause.status())
+                    .description("Failed storage operations by cause")
+                    .register(meterRegistry);
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder(OPERATION_TIMER)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .description("Duration of storage operations")
+                    .register(meterRegistry);
+        }
+    }
+
+    private record ErrorCause(Class<?> exceptionType, String status) {}
+}
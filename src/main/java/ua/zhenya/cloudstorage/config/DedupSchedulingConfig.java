@@ -0,0 +1,23 @@
+package ua.zhenya.cloudstorage.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import ua.zhenya.cloudstorage.service.BlobService;
+
+/**
+ * Schedules the sweep of unreferenced blobs only while {@code storage.dedup.enabled} is set.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "storage.dedup", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class DedupSchedulingConfig {
+    private final BlobService blobService;
+
+    @Scheduled(initialDelayString = "#{@dedupProperties.sweepInterval.toMillis()}",
+            fixedDelayString = "#{@dedupProperties.sweepInterval.toMillis()}")
+    public void sweepUnreferencedBlobs() {
+        blobService.sweepUnreferencedBlobs();
+    }
+}
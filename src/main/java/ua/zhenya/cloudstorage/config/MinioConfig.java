@@ -1,21 +1,87 @@
 package ua.zhenya.cloudstorage.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
 import lombok.RequiredArgsConstructor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ua.zhenya.cloudstorage.properties.MinioProperties;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @RequiredArgsConstructor
 public class MinioConfig {
+    private static final String METRICS_NAME_PREFIX = "minio.http";
+    private static final Tags METRICS_TAGS = Tags.of("client", "minio");
+
     private final MinioProperties minioProperties;
+    private final MeterRegistry meterRegistry;
 
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(minioProperties.getEndpoint())
                 .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    /**
+     * Shares the HTTP client with {@link #minioClient}, so both clients draw from one connection pool.
+     */
+    @Bean
+    public MinioAsyncClient minioAsyncClient(OkHttpClient minioHttpClient) {
+        return MinioAsyncClient.builder()
+                .endpoint(minioProperties.getEndpoint())
+                .credentials(minioProperties.getAccessKey(), minioProperties.getSecretKey())
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    /**
+     * Requests run on virtual threads, so storage calls are no longer capped by a thread pool. The connection pool
+     * keeps enough idle connections for that concurrency to be reused instead of reopened, and the dispatcher runs
+     * asynchronous calls on virtual threads with limits raised from OkHttp's defaults of 64 requests and 5 per host,
+     * as every call goes to the same storage endpoint.
+     * <p>
+     * The pool's active and idle connections and the dispatcher's running and queued calls are exported as
+     * {@code minio.http.*} metrics, to show whether these limits or the storage cluster are the bottleneck.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        Dispatcher dispatcher = new Dispatcher(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("minio-", 0).factory()));
+        dispatcher.setMaxRequests(minioProperties.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(minioProperties.getMaxRequestsPerHost());
+        ConnectionPool connectionPool = new ConnectionPool(minioProperties.getMaxIdleConnections(),
+                minioProperties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+
+        new OkHttpConnectionPoolMetrics(connectionPool, METRICS_NAME_PREFIX, METRICS_TAGS, minioProperties.getMaxIdleConnections())
+                .bindTo(meterRegistry);
+        Gauge.builder(METRICS_NAME_PREFIX + ".calls", dispatcher, Dispatcher::runningCallsCount)
+                .tags(METRICS_TAGS.and("state", "running"))
+                .description("Asynchronous storage calls in flight")
+                .register(meterRegistry);
+        Gauge.builder(METRICS_NAME_PREFIX + ".calls", dispatcher, Dispatcher::queuedCallsCount)
+                .tags(METRICS_TAGS.and("state", "queued"))
+                .description("Asynchronous storage calls waiting for the request limits")
+                .register(meterRegistry);
+
+        return HttpUtils.newDefaultHttpClient(minioProperties.getConnectTimeout().toMillis(),
+                        minioProperties.getWriteTimeout().toMillis(), minioProperties.getReadTimeout().toMillis())
+                .newBuilder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
                 .build();
     }
 }
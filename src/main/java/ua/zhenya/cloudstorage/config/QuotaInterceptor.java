@@ -0,0 +1,29 @@
+package ua.zhenya.cloudstorage.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import ua.zhenya.cloudstorage.service.QuotaService;
+
+/**
+ * Rejects an upload whose declared length does not fit in the user's remaining quota before any of its body is read.
+ * Multipart requests are resolved lazily, so this runs before their parts are spooled to disk.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuotaInterceptor implements HandlerInterceptor {
+    private final QuotaService quotaService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long contentLength = request.getContentLengthLong();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (contentLength > 0 && authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl userDetails)
+            quotaService.checkAvailable(userDetails.getId(), contentLength);
+        return true;
+    }
+}
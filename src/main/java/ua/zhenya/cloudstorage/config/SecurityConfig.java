@@ -1,6 +1,7 @@
 package ua.zhenya.cloudstorage.config;
 
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,8 +23,14 @@ import java.util.List;
 @EnableRedisHttpSession(maxInactiveIntervalInSeconds = 43600)
 public class SecurityConfig {
 
+    /**
+     * Actuator endpoints are served only on the management port, which listens on an internal address, so requests
+     * reaching that port need no session; on the public port every path other than sign-up, sign-in and the API docs
+     * requires one.
+     */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, ManagementServerProperties managementServerProperties) throws Exception {
+        Integer managementPort = managementServerProperties.getPort();
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors
@@ -47,6 +54,7 @@ public class SecurityConfig {
                 .authorizeHttpRequests(requests -> requests
                         .requestMatchers("/api/auth/sign-up", "/api/auth/sign-in").permitAll()
                         .requestMatchers("/swagger-ui/**", "/swagger-ui.html**", "/v3/api-docs/**").permitAll()
+                        .requestMatchers(request -> managementPort != null && request.getLocalPort() == managementPort).permitAll()
                         .anyRequest().authenticated())
                 .formLogin(AbstractHttpConfigurer::disable)
                 .httpBasic(basic -> basic
@@ -0,0 +1,21 @@
+package ua.zhenya.cloudstorage.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final QuotaInterceptor quotaInterceptor;
+
+    /**
+     * Parts of chunked uploads are not checked here: their bytes are already covered by the upload's hold.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(quotaInterceptor)
+                .addPathPatterns("/api/resource", "/api/resource/stream", "/api/async/resource/stream");
+    }
+}
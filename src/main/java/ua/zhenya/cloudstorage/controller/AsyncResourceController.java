@@ -0,0 +1,165 @@
+package ua.zhenya.cloudstorage.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.properties.AsyncProperties;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Variant of the download, listing and streaming upload endpoints that returns futures, so the container thread is
+ * released while storage is working on the request. This is not a non-blocking pipeline: a download waits for storage
+ * to answer without holding a thread, but its body, an upload and a listing are still transferred with blocking I/O on
+ * a virtual thread held for as long as they run. Enabled with {@code storage.async.enabled}.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/async")
+@Validated
+@Slf4j
+@Tag(name = "Async Resource Management", description = "Asynchronous variant of the file download, upload and directory listing API")
+public class AsyncResourceController {
+    private final ResourceService resourceService;
+    private final AsyncProperties asyncProperties;
+    private final ExecutorService requestExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("async-request-", 0).factory());
+
+    @PreDestroy
+    void shutdown() {
+        requestExecutor.shutdownNow();
+    }
+
+    @Operation(summary = "Download a file", description = "Downloads a file. The request is released while storage opens the object.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File sent successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                            schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., path is a folder)",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "File not found at the specified path",
+                    content = @Content),
+            @ApiResponse(responseCode = "501", description = "Async transfers are disabled",
+                    content = @Content)
+    })
+    @GetMapping("/resource/download")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> downloadResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                                     @RequestParam @NotBlank(message = "'path' must not be blank") String path) {
+        requireEnabled();
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/async/resource/download request for user ID: {} and path: '{}'", userId, path);
+        return resourceService.downloadFileAsync(userId, path).thenApply(resource -> {
+            ContentDisposition contentDisposition = ContentDisposition.attachment()
+                    .filename(resource.getFileName(), StandardCharsets.UTF_8)
+                    .build();
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(resource.getContent());
+        });
+    }
+
+    @Operation(summary = "Upload a file as a stream", description = "Uploads the raw request body as a single file named 'filename' in the specified user folder, the same way as the blocking stream upload. The container thread is released while storage receives the file.",
+            requestBody = @RequestBody(content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File uploaded successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ResourceResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., incorrect 'path' or 'filename')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Target directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
+                    content = @Content),
+            @ApiResponse(responseCode = "413", description = "Storage quota exceeded",
+                    content = @Content),
+            @ApiResponse(responseCode = "501", description = "Async transfers are disabled",
+                    content = @Content)
+    })
+    @PutMapping("/resource/stream")
+    public CompletableFuture<ResponseEntity<ResourceResponse>> uploadResourceStream(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                                    @RequestParam(defaultValue = "") String path,
+                                                                                    @RequestParam @NotBlank(message = "'filename' must not be blank") String filename,
+                                                                                    @Parameter(hidden = true) HttpServletRequest request) {
+        requireEnabled();
+        Integer userId = userDetailsImpl.getId();
+        long size = request.getContentLengthLong();
+        log.info("Received PUT /api/async/resource/stream request for user ID: {} to path: '{}' with filename: '{}' and {} byte(s)", userId, path, filename, size);
+        String contentType = request.getContentType() != null ? request.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        InputStream inputStream;
+        try {
+            inputStream = request.getInputStream();
+        } catch (IOException e) {
+            throw new CloudStorageException("Error reading request body!", HttpStatus.BAD_REQUEST);
+        }
+        return CompletableFuture.supplyAsync(() -> upload(userId, path, filename, inputStream, size, contentType), requestExecutor)
+                .thenApply(resourceResponse -> ResponseEntity.status(HttpStatus.CREATED.value()).body(resourceResponse));
+    }
+
+    @Operation(summary = "List directory contents", description = "Retrieves the files and subdirectories of the specified folder. The listing is read off the request thread.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Directory contents retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(type = "array", implementation = ResourceResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "501", description = "Async transfers are disabled",
+                    content = @Content)
+    })
+    @GetMapping("/directory")
+    public CompletableFuture<List<ResourceResponse>> getDirectoryContent(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                         @RequestParam(defaultValue = "") String path) {
+        requireEnabled();
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/async/directory request for user ID: {}, path '{}'", userId, path);
+        return CompletableFuture.supplyAsync(() -> resourceService.getDirectoryContent(userId, path), requestExecutor);
+    }
+
+    private ResourceResponse upload(Integer userId, String path, String filename, InputStream inputStream, long size, String contentType) {
+        try (inputStream) {
+            return resourceService.uploadResource(userId, path, filename, inputStream, size, contentType);
+        } catch (IOException e) {
+            throw new CloudStorageException("Error reading request body!", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private void requireEnabled() {
+        if (!asyncProperties.isEnabled())
+            throw new CloudStorageException("Async transfers are disabled!", HttpStatus.NOT_IMPLEMENTED);
+    }
+}
@@ -1,5 +1,7 @@
 package ua.zhenya.cloudstorage.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -8,23 +10,28 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.dto.ResourcePageResponse;
 import ua.zhenya.cloudstorage.dto.ResourceResponse;
 import ua.zhenya.cloudstorage.service.ResourceService;
 
 import java.net.URI;
 import java.util.List;
 
+import static ua.zhenya.cloudstorage.utils.NdjsonUtils.toNdjson;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/directory")
@@ -33,6 +40,7 @@ import java.util.List;
 @Tag(name = "Directory Management", description = "API for managing user directories in cloud storage")
 public class DirectoryController {
     private final ResourceService resourceService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Create a new directory", description = "Creates a directory at the specified path. The path must end with a '/'.")
     @ApiResponses(value = {
@@ -65,11 +73,15 @@ public class DirectoryController {
         return ResponseEntity.created(location).body(response);
     }
 
-    @Operation(summary = "List directory contents", description = "Retrieves a list of files and subdirectories within the specified directory path. Provide an empty path to list the root directory.")
+    @Operation(summary = "List directory contents", description = "Retrieves a list of files and subdirectories within the specified directory path. Provide an empty path to list the root directory. Send 'Accept: application/x-ndjson' to receive the entries as a stream of JSON lines.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Directory contents retrieved successfully",
-                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            array = @ArraySchema(schema = @Schema(implementation = ResourceResponse.class)))),
+                    content = {
+                            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    array = @ArraySchema(schema = @Schema(implementation = ResourceResponse.class))),
+                            @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ResourceResponse.class))
+                    }),
             @ApiResponse(responseCode = "400", description = "Invalid request (e.g., path is provided but doesn't end with '/' and isn't empty)",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "User not authenticated",
@@ -86,4 +98,42 @@ public class DirectoryController {
         log.info("Received GET /api/directory request for user ID: {}, path '{}'", userId, path);
         return ResponseEntity.ok(resourceService.getDirectoryContent(userDetailsImpl.getId(), path));
     }
+
+    /**
+     * NDJSON variant of {@link #getDirectoryContext}, selected when the client prefers {@code application/x-ndjson};
+     * documented there.
+     */
+    @Hidden
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDirectoryContent(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                        @RequestParam(defaultValue = "") String path) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/directory request for user ID: {}, path '{}' as NDJSON", userId, path);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(toNdjson(objectMapper, resourceService.streamDirectoryContent(userId, path)));
+    }
+
+    @Operation(summary = "List directory contents page by page", description = "Retrieves one page of files and subdirectories ordered by name. Pass the returned 'continuationToken' to get the next page; it is absent on the last page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Directory page retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ResourcePageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., path doesn't end with '/', invalid 'continuationToken' or 'limit')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Directory not found at the specified path",
+                    content = @Content)
+    })
+    @GetMapping("/page")
+    public ResponseEntity<ResourcePageResponse> getDirectoryContextPage(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                        @RequestParam(defaultValue = "") String path,
+                                                                        @RequestParam(required = false) String continuationToken,
+                                                                        @RequestParam(required = false) @Min(value = 1, message = "'limit' must be positive") Integer limit,
+                                                                        @RequestParam(defaultValue = "ASC") Sort.Direction order) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/directory/page request for user ID: {}, path '{}', limit: {}, order: {}", userId, path, limit, order);
+        return ResponseEntity.ok(resourceService.getDirectoryContentPage(userId, path, continuationToken, limit, order));
+    }
 }
@@ -0,0 +1,171 @@
+package ua.zhenya.cloudstorage.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.*;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.dto.JobResponse;
+import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.service.JobService;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/jobs")
+@Validated
+@Slf4j
+@Tag(name = "Background Jobs", description = "API for running long move, delete and archive operations asynchronously and polling their progress")
+public class JobController {
+    private final JobService jobService;
+
+    @Operation(summary = "Start a move job", description = "Moves or renames a file or folder in the background. Returns the job to poll for progress; a missing source fails the job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accepted",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = JobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank paths)",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many jobs in progress",
+                    content = @Content)
+    })
+    @PostMapping("/move")
+    public ResponseEntity<JobResponse> submitMove(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                  @RequestParam @NotBlank(message = "'from' must not be blank") String from,
+                                                  @RequestParam @NotBlank(message = "'to' must not be blank") String to) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/jobs/move request for user ID: {} from path: '{}' to path: '{}'", userId, from, to);
+        return accepted(jobService.submitMove(userId, from, to));
+    }
+
+    @Operation(summary = "Start a delete job", description = "Deletes a file or a folder (including all its content) in the background. A missing resource fails the job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accepted",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = JobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank 'path')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many jobs in progress",
+                    content = @Content)
+    })
+    @PostMapping("/delete")
+    public ResponseEntity<JobResponse> submitDelete(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                    @RequestParam @NotBlank(message = "'path' must not be blank") String path) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/jobs/delete request for user ID: {} and path: '{}'", userId, path);
+        return accepted(jobService.submitDelete(userId, path));
+    }
+
+    @Operation(summary = "Start an archive job", description = "Builds a zip archive of a folder in the background. Once completed, the archive can be downloaded from the job. A missing folder fails the job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accepted",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = JobResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., path is not a folder)",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "503", description = "Too many jobs in progress",
+                    content = @Content)
+    })
+    @PostMapping("/archive")
+    public ResponseEntity<JobResponse> submitArchive(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                     @RequestParam @NotBlank(message = "'path' must not be blank") String path) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/jobs/archive request for user ID: {} and path: '{}'", userId, path);
+        return accepted(jobService.submitArchive(userId, path));
+    }
+
+    @Operation(summary = "Get job status", description = "Returns the status and progress of a background job: objects processed, bytes processed and estimated time remaining.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = JobResponse.class))),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Job not found",
+                    content = @Content)
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<JobResponse> getJob(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                              @PathVariable String id) {
+        return ResponseEntity.ok(jobService.getJob(userDetailsImpl.getId(), id));
+    }
+
+    @Operation(summary = "Download job result", description = "Downloads the zip archive produced by a completed archive job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Archive sent successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                            schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Job not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Job is not a completed archive job",
+                    content = @Content)
+    })
+    @GetMapping("/{id}/download")
+    public ResponseEntity<StreamingResponseBody> downloadJobResult(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                   @PathVariable String id) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/jobs/{}/download request for user ID: {}", id, userId);
+        ResourceDownloadResponse resource = jobService.downloadJobResult(userId, id);
+
+        ContentDisposition contentDisposition = ContentDisposition.attachment()
+                .filename(resource.getFileName(), StandardCharsets.UTF_8)
+                .build();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition.toString())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(resource.getContent());
+    }
+
+    @Operation(summary = "Delete job", description = "Removes a finished job and its result.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Job deleted successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Job not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Job is still in progress",
+                    content = @Content)
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteJob(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                          @PathVariable String id) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received DELETE /api/jobs/{} request for user ID: {}", id, userId);
+        jobService.deleteJob(userId, id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<JobResponse> accepted(JobResponse job) {
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/jobs/{id}")
+                .buildAndExpand(job.getId())
+                .toUri();
+
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+}
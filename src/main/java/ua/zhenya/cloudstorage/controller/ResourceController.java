@@ -1,29 +1,50 @@
 package ua.zhenya.cloudstorage.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Hidden;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.dto.PresignedUrlResponse;
 import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceFileInfo;
 import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.UploadResultResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
 import ua.zhenya.cloudstorage.service.impl.ResourceServiceImpl;
+import ua.zhenya.cloudstorage.utils.HttpRangeUtils.ByteRange;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import static ua.zhenya.cloudstorage.utils.HttpRangeUtils.ifRangeMatches;
+import static ua.zhenya.cloudstorage.utils.HttpRangeUtils.multipartByteRanges;
+import static ua.zhenya.cloudstorage.utils.HttpRangeUtils.resolveRanges;
+import static ua.zhenya.cloudstorage.utils.HttpRangeUtils.toMultipartByteRanges;
+import static ua.zhenya.cloudstorage.utils.NdjsonUtils.toNdjson;
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/resource")
@@ -32,6 +53,7 @@ import java.util.List;
 @Tag(name = "Resource Management", description = "API for managing user files and folders in cloud storage")
 public class ResourceController {
     private final ResourceServiceImpl resourceService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Get resource information", description = "Returns information about a file or folder at the specified path.")
     @ApiResponses(value = {
@@ -55,11 +77,14 @@ public class ResourceController {
         return new ResponseEntity<>(resourceInfo, HttpStatus.OK);
     }
 
-    @Operation(summary = "Upload files", description = "Uploads one or more files to the specified user folder. If the path is empty, uploads to the user's root folder.")
+    @Operation(summary = "Upload files", description = "Uploads one or more files to the specified user folder. If the path is empty, uploads to the user's root folder. Every file is stored independently: the response lists the files that were uploaded and, for each file that failed, the error.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Files uploaded successfully",
                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(type = "array", implementation = ResourceResponse.class))),
+                            schema = @Schema(implementation = UploadResultResponse.class))),
+            @ApiResponse(responseCode = "207", description = "Some of the files could not be uploaded",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UploadResultResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request (e.g., incorrect 'path' or missing files)",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "User not authenticated",
@@ -67,17 +92,57 @@ public class ResourceController {
             @ApiResponse(responseCode = "404", description = "Target directory not found",
                     content = @Content),
             @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
-                    content = @Content)
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "None of the files could be uploaded",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UploadResultResponse.class)))
     })
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<List<ResourceResponse>> uploadResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-                                                                 @RequestParam(defaultValue = "") String path,
-                                                                 @RequestPart("object") List<MultipartFile> files) {
+    public ResponseEntity<UploadResultResponse> uploadResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                               @RequestParam(defaultValue = "") String path,
+                                                               @RequestPart("object") List<MultipartFile> files) {
         Integer userId = userDetailsImpl.getId();
         int fileCount = (files != null) ? files.size() : 0;
         log.info("Received POST /api/resource request for user ID: {} to path: '{}' with {} file(s)", userId, path, fileCount);
-        List<ResourceResponse> resourceResponses = resourceService.uploadResources(userDetailsImpl.getId(), path, files);
-        return ResponseEntity.status(HttpStatus.CREATED.value()).body(resourceResponses);
+        UploadResultResponse result = resourceService.uploadResources(userDetailsImpl.getId(), path, files);
+
+        HttpStatus status = result.getFailed().isEmpty()
+                ? HttpStatus.CREATED
+                : result.getUploaded().isEmpty() ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.MULTI_STATUS;
+        return ResponseEntity.status(status.value()).body(result);
+    }
+
+    @Operation(summary = "Upload a file as a stream", description = "Uploads the raw request body as a single file named 'filename' in the specified user folder, streaming it straight to storage. If the path is empty, uploads to the user's root folder. Content-Length is optional; the request's Content-Type is stored with the file.",
+            requestBody = @RequestBody(content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File uploaded successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ResourceResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., incorrect 'path' or 'filename')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Target directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
+                    content = @Content)
+    })
+    @PutMapping("/stream")
+    public ResponseEntity<ResourceResponse> uploadResourceStream(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                 @RequestParam(defaultValue = "") String path,
+                                                                 @RequestParam @NotBlank(message = "'filename' must not be blank") String filename,
+                                                                 @Parameter(hidden = true) HttpServletRequest request) {
+        Integer userId = userDetailsImpl.getId();
+        long size = request.getContentLengthLong();
+        log.info("Received PUT /api/resource/stream request for user ID: {} to path: '{}' with filename: '{}' and {} byte(s)", userId, path, filename, size);
+        String contentType = request.getContentType() != null ? request.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        try (InputStream inputStream = request.getInputStream()) {
+            ResourceResponse resourceResponse = resourceService.uploadResource(userId, path, filename, inputStream, size, contentType);
+            return ResponseEntity.status(HttpStatus.CREATED.value()).body(resourceResponse);
+        } catch (IOException e) {
+            throw new CloudStorageException("Error reading request body!", HttpStatus.BAD_REQUEST);
+        }
     }
 
     @Operation(summary = "Delete resource", description = "Deletes a file or a folder (including all its content) at the specified path.")
@@ -100,23 +165,35 @@ public class ResourceController {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Download resource", description = "Downloads a file or a folder (as a zip archive) from the specified path.")
+    @Operation(summary = "Download resource", description = "Downloads a file or a folder (as a zip archive) from the specified path. Files support byte ranges ('Range', 'If-Range') and conditional requests ('If-None-Match', 'If-Modified-Since'). A malformed 'Range' header is ignored and the whole file is sent.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "File or archive sent successfully",
                     content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
                             schema = @Schema(type = "string", format = "binary"))),
+            @ApiResponse(responseCode = "206", description = "Requested byte range(s) of the file sent successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "304", description = "File not modified since the cached copy",
+                    content = @Content),
             @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank 'path')",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "User not authenticated",
                     content = @Content),
             @ApiResponse(responseCode = "404", description = "Resource not found at the specified path",
+                    content = @Content),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable",
                     content = @Content)
     })
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-                                                     @RequestParam @NotBlank(message = "'path' must not be blank") String path) {
+    public ResponseEntity<StreamingResponseBody> downloadResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                  @RequestParam @NotBlank(message = "'path' must not be blank") String path,
+                                                                  @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                                                  @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                                  @Parameter(hidden = true) WebRequest webRequest) {
         Integer userId = userDetailsImpl.getId();
-        log.info("Received GET /api/resource/download request for user ID: {} and path: '{}'", userId, path);
+        log.info("Received GET /api/resource/download request for user ID: {} and path: '{}' (range: {})", userId, path, range);
+        if (!isDirectory(path))
+            return downloadFile(userId, path, range, ifRange, webRequest);
+
         ResourceDownloadResponse resource = resourceService.downloadResource(userDetailsImpl.getId(), path);
         String fileName = resource.getFileName();
 
@@ -130,6 +207,103 @@ public class ResourceController {
                 .body(resource.getContent());
     }
 
+    @Operation(summary = "Get a direct download URL", description = "Returns a short-lived URL to download the file directly from storage. Files only; requires direct transfers to be enabled.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Presigned URL created",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PresignedUrlResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank 'path', presigned URL requested for a folder)",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Resource not found at the specified path",
+                    content = @Content),
+            @ApiResponse(responseCode = "501", description = "Direct transfers are disabled",
+                    content = @Content)
+    })
+    @GetMapping(value = "/download", params = "presigned=true")
+    public ResponseEntity<PresignedUrlResponse> getDownloadUrl(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                               @RequestParam @NotBlank(message = "'path' must not be blank") String path) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/resource/download request for user ID: {} and path: '{}' (presigned)", userId, path);
+        return ResponseEntity.ok(resourceService.getDownloadUrl(userId, path));
+    }
+
+    /**
+     * Serves a file with validators, so clients can revalidate a cached copy (304 without a body), and with byte range
+     * support. Every range is fetched from storage with its own ranged read instead of skipping through the object.
+     */
+    private ResponseEntity<StreamingResponseBody> downloadFile(Integer userId, String path, String range, String ifRange, WebRequest webRequest) {
+        ResourceFileInfo file = resourceService.getFileInfo(userId, path);
+        String etag = "\"" + file.getEtag() + "\"";
+        if (webRequest.checkNotModified(etag, file.getLastModified().toEpochMilli()))
+            return null;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(file.getFileName(), StandardCharsets.UTF_8)
+                .build());
+        headers.setETag(etag);
+        headers.setLastModified(file.getLastModified());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        MediaType contentType = contentTypeOf(file);
+
+        List<ByteRange> byteRanges = List.of();
+        if (range != null && ifRangeMatches(ifRange, etag, file.getLastModified())) {
+            try {
+                byteRanges = resolveRanges(range, file.getSize());
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize())
+                        .build();
+            }
+        }
+
+        if (byteRanges.isEmpty()) {
+            InputStream content = resourceService.getFileContent(userId, path, 0, null);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .contentType(contentType)
+                    .contentLength(file.getSize())
+                    .body(streamOf(content));
+        }
+
+        if (byteRanges.size() == 1) {
+            ByteRange byteRange = byteRanges.getFirst();
+            InputStream content = resourceService.getFileContent(userId, path, byteRange.start(), byteRange.length());
+            headers.set(HttpHeaders.CONTENT_RANGE, byteRange.contentRange(file.getSize()));
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .contentType(contentType)
+                    .contentLength(byteRange.length())
+                    .body(streamOf(content));
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        StreamingResponseBody content = toMultipartByteRanges(byteRanges, file.getSize(), contentType, boundary,
+                byteRange -> resourceService.getFileContent(userId, path, byteRange.start(), byteRange.length()));
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .contentType(multipartByteRanges(boundary))
+                .body(content);
+    }
+
+    private static MediaType contentTypeOf(ResourceFileInfo file) {
+        try {
+            return file.getContentType() != null ? MediaType.parseMediaType(file.getContentType()) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
+
+    private static StreamingResponseBody streamOf(InputStream content) {
+        return outputStream -> {
+            try (content) {
+                content.transferTo(outputStream);
+            }
+        };
+    }
+
     @Operation(summary = "Move/Rename resource", description = "Moves or renames a file or folder.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Resource moved/renamed successfully",
@@ -154,21 +328,44 @@ public class ResourceController {
         return ResponseEntity.ok().body(response);
     }
 
-    @Operation(summary = "Search resources", description = "Searches for files by a part of their name in the user's storage (case-insensitive). Does not search within folders.")
+    @Operation(summary = "Search resources", description = "Searches for files and folders by a part of their name in the user's storage (case-insensitive). Results are ordered by name. Without 'page' and 'limit' all matches are returned; with either of them results are returned page by page, 'limit' has a server default and is capped by the server. Send 'Accept: application/x-ndjson' to stream all matches as JSON lines instead.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Search completed successfully. Returns a list of found files.",
-                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
-                            schema = @Schema(type = "array", implementation = ResourceResponse.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank 'query')",
+            @ApiResponse(responseCode = "200", description = "Search completed successfully. Returns a list of found files and folders.",
+                    content = {
+                            @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(type = "array", implementation = ResourceResponse.class)),
+                            @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                                    schema = @Schema(implementation = ResourceResponse.class))
+                    }),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., blank 'query', negative 'page')",
                     content = @Content),
             @ApiResponse(responseCode = "401", description = "User not authenticated",
                     content = @Content)
     })
     @GetMapping("/search")
     public ResponseEntity<List<ResourceResponse>> searchResource(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
-                                                                 @RequestParam @NotBlank(message = "'query' must not be blank") String query) {
+                                                                 @RequestParam @NotBlank(message = "'query' must not be blank") String query,
+                                                                 @RequestParam(required = false) @Min(value = 0, message = "'page' must not be negative") Integer page,
+                                                                 @RequestParam(required = false) @Min(value = 1, message = "'limit' must be positive") Integer limit) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/resource/search request for user ID: {} with query: '{}', page: {}, limit: {}", userId, query, page, limit);
+        if (page == null && limit == null)
+            return ResponseEntity.ok(resourceService.searchResources(userId, query));
+        return ResponseEntity.ok(resourceService.searchResources(userId, query, page == null ? 0 : page, limit));
+    }
+
+    /**
+     * NDJSON variant of {@link #searchResource}, selected when the client prefers {@code application/x-ndjson};
+     * documented there.
+     */
+    @Hidden
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchResults(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                     @RequestParam @NotBlank(message = "'query' must not be blank") String query) {
         Integer userId = userDetailsImpl.getId();
-        log.info("Received GET /api/resource/search request for user ID: {} with query: '{}'", userId, query);
-        return ResponseEntity.ok(resourceService.searchResources(userDetailsImpl.getId(), query));
+        log.info("Received GET /api/resource/search request for user ID: {} with query: '{}' as NDJSON", userId, query);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(toNdjson(objectMapper, resourceService.streamSearchResults(userId, query)));
     }
 }
@@ -0,0 +1,195 @@
+package ua.zhenya.cloudstorage.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.dto.DirectUploadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.service.ChunkedUploadService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/uploads")
+@Validated
+@Slf4j
+@Tag(name = "Uploads", description = "API for uploading large files in parts that can be retried independently and resumed later, or directly to storage")
+public class UploadController {
+    private final ChunkedUploadService chunkedUploadService;
+
+    @Operation(summary = "Start a chunked upload", description = "Creates an upload for a file of 'size' bytes in the specified user folder. If the path is empty, the file is uploaded to the user's root folder. The size is held against the user's quota until the upload is completed, aborted or expires.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload created",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., incorrect 'path' or 'filename')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Target directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
+                    content = @Content),
+            @ApiResponse(responseCode = "413", description = "The file does not fit in the user's storage quota",
+                    content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> initiateUpload(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                @RequestParam(defaultValue = "") String path,
+                                                                @RequestParam @NotBlank(message = "'filename' must not be blank") String filename,
+                                                                @RequestParam @Min(value = 0, message = "'size' must not be negative") long size,
+                                                                @RequestParam(required = false) String contentType) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/uploads request for user ID: {} to path: '{}' with filename: '{}' and {} byte(s)", userId, path, filename, size);
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(userId, path, filename, size, contentType);
+
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/uploads/{id}")
+                .buildAndExpand(upload.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);
+    }
+
+    @Operation(summary = "Start a direct upload", description = "Creates an upload whose file is sent straight to storage instead of through this API: POST the returned 'fields', followed by the file as the 'file' field, as multipart/form-data to 'url'. Storage accepts files up to the user's remaining quota. Then complete the upload so the file appears in the user's storage. Requires direct transfers to be enabled.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload created",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = DirectUploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request (e.g., incorrect 'path' or 'filename')",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Target directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
+                    content = @Content),
+            @ApiResponse(responseCode = "501", description = "Direct transfers are disabled",
+                    content = @Content)
+    })
+    @PostMapping("/direct")
+    public ResponseEntity<DirectUploadResponse> initiateDirectUpload(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                                     @RequestParam(defaultValue = "") String path,
+                                                                     @RequestParam @NotBlank(message = "'filename' must not be blank") String filename,
+                                                                     @RequestParam(required = false) String contentType) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/uploads/direct request for user ID: {} to path: '{}' with filename: '{}'", userId, path, filename);
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(userId, path, filename, contentType);
+
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/uploads/{id}")
+                .buildAndExpand(upload.getId())
+                .toUri();
+        return ResponseEntity.created(location).body(upload);
+    }
+
+    @Operation(summary = "Upload a part", description = "Uploads part number 'partNumber' (starting at 1) as the raw request body. Sending the same part again replaces it. Every part except the last must be at least the minimum part size.",
+            requestBody = @RequestBody(content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Part uploaded successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Invalid part number, the parts exceed the declared size, or the upload is a direct upload",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Upload not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "411", description = "Content-Length header is missing",
+                    content = @Content)
+    })
+    @PutMapping("/{id}/parts/{partNumber}")
+    public ResponseEntity<Void> uploadPart(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                           @PathVariable String id,
+                                           @PathVariable int partNumber,
+                                           @Parameter(hidden = true) HttpServletRequest request) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received PUT /api/uploads/{}/parts/{} request for user ID: {} with {} byte(s)", id, partNumber, userId, request.getContentLengthLong());
+        try (InputStream inputStream = request.getInputStream()) {
+            chunkedUploadService.uploadPart(userId, id, partNumber, inputStream, request.getContentLengthLong());
+        } catch (IOException e) {
+            throw new CloudStorageException("Error reading part %d!".formatted(partNumber), HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get upload status", description = "Returns the parts received so far, so an interrupted upload can be resumed from the first missing part.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload status retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Upload not found",
+                    content = @Content)
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                           @PathVariable String id) {
+        return ResponseEntity.ok(chunkedUploadService.getUpload(userDetailsImpl.getId(), id));
+    }
+
+    @Operation(summary = "Complete an upload", description = "Assembles the uploaded parts, in part number order, into the target file. For a direct upload, stores the file sent to storage.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "File uploaded successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ResourceResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Parts are missing, too small or exceed the declared size, or no file has been sent for a direct upload",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Upload or target directory not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Conflict: A resource with the same name already exists in the target directory",
+                    content = @Content)
+    })
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<ResourceResponse> completeUpload(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                           @PathVariable String id) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received POST /api/uploads/{}/complete request for user ID: {}", id, userId);
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.completeUpload(userId, id));
+    }
+
+    @Operation(summary = "Abort an upload", description = "Cancels the upload and removes the parts or the file received so far.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload aborted successfully",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Upload not found",
+                    content = @Content)
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortUpload(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                            @PathVariable String id) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received DELETE /api/uploads/{} request for user ID: {}", id, userId);
+        chunkedUploadService.abortUpload(userId, id);
+        return ResponseEntity.noContent().build();
+    }
+}
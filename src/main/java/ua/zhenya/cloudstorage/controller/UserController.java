@@ -1,26 +1,35 @@
 package ua.zhenya.cloudstorage.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import ua.zhenya.cloudstorage.config.UserDetailsImpl;
 import ua.zhenya.cloudstorage.dto.AuthResponse;
+import ua.zhenya.cloudstorage.dto.StorageUsageResponse;
+import ua.zhenya.cloudstorage.service.ResourceService;
 import ua.zhenya.cloudstorage.service.impl.AuthServiceImpl;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/user")
+@Slf4j
 @Tag(name = "User Information", description = "API for retrieving information about the authenticated user")
 public class UserController {
     private final AuthServiceImpl authServiceImpl;
+    private final ResourceService resourceService;
 
     @Operation(summary = "Get current user information", description = "Retrieves the username of the currently authenticated user based on their session or token.")
     @ApiResponses(value = {
@@ -36,4 +45,24 @@ public class UserController {
     public ResponseEntity<AuthResponse> getCurrentUser() {
         return ResponseEntity.ok(authServiceImpl.getCurrentUser());
     }
+
+    @Operation(summary = "Get storage usage", description = "Returns the total size and number of files stored by the current user, or below the specified folder. If the path is empty, returns the usage of the whole storage.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Storage usage retrieved successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = StorageUsageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid path (e.g., not a folder)",
+                    content = @Content),
+            @ApiResponse(responseCode = "401", description = "User not authenticated",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Folder not found at the specified path",
+                    content = @Content)
+    })
+    @GetMapping("/usage")
+    public ResponseEntity<StorageUsageResponse> getUsage(@Parameter(hidden = true) @AuthenticationPrincipal UserDetailsImpl userDetailsImpl,
+                                                         @RequestParam(defaultValue = "") String path) {
+        Integer userId = userDetailsImpl.getId();
+        log.info("Received GET /api/user/usage request for user ID: {} and path: '{}'", userId, path);
+        return ResponseEntity.ok(resourceService.getUsage(userId, path));
+    }
 }
@@ -0,0 +1,19 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DirectUploadResponse {
+    private String id;
+    private String url;
+    private String method;
+    private Map<String, String> fields;
+    private Instant expiresAt;
+}
@@ -0,0 +1,31 @@
+package ua.zhenya.cloudstorage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class JobResponse {
+    private String id;
+    private JobType type;
+    private JobStatus status;
+    private String path;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String targetPath;
+    private long objectsProcessed;
+    private long totalObjects;
+    private long bytesProcessed;
+    private long totalBytes;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long etaSeconds;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+    private Instant createdAt;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant finishedAt;
+}
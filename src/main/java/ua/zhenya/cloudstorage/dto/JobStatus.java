@@ -0,0 +1,5 @@
+package ua.zhenya.cloudstorage.dto;
+
+public enum JobStatus {
+    PENDING, RUNNING, COMPLETED, FAILED
+}
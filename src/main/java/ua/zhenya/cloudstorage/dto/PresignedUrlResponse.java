@@ -0,0 +1,16 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class PresignedUrlResponse {
+    private String url;
+    private String method;
+    private Instant expiresAt;
+}
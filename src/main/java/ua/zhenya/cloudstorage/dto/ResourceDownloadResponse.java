@@ -3,12 +3,12 @@ package ua.zhenya.cloudstorage.dto;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class ResourceDownloadResponse {
     private String fileName;
-    private Resource content;
+    private StreamingResponseBody content;
 }
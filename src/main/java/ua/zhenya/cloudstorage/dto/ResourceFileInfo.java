@@ -0,0 +1,18 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceFileInfo {
+    private String fileName;
+    private long size;
+    private String etag;
+    private Instant lastModified;
+    private String contentType;
+}
@@ -0,0 +1,15 @@
+package ua.zhenya.cloudstorage.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ResourcePageResponse {
+    private List<ResourceResponse> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String continuationToken;
+}
@@ -0,0 +1,13 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceSummary {
+    private long objectCount;
+    private long totalSize;
+}
@@ -0,0 +1,14 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class StorageUsageResponse {
+    private String path;
+    private long totalSize;
+    private long fileCount;
+}
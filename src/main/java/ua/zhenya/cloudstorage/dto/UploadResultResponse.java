@@ -0,0 +1,15 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class UploadResultResponse {
+    private List<ResourceResponse> uploaded;
+    private List<UploadFailure> failed;
+}
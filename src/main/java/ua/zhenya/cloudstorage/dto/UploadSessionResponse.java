@@ -0,0 +1,22 @@
+package ua.zhenya.cloudstorage.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    private String id;
+    private String path;
+    private String filename;
+    private long size;
+    private List<Integer> uploadedParts;
+    private long uploadedBytes;
+    private long minPartSize;
+    private Instant createdAt;
+}
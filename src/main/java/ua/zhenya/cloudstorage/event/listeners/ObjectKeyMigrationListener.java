@@ -0,0 +1,21 @@
+package ua.zhenya.cloudstorage.event.listeners;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ua.zhenya.cloudstorage.properties.ObjectKeyProperties;
+import ua.zhenya.cloudstorage.service.ObjectKeyMigrationService;
+
+@Component
+@RequiredArgsConstructor
+public class ObjectKeyMigrationListener {
+    private final ObjectKeyMigrationService objectKeyMigrationService;
+    private final ObjectKeyProperties objectKeyProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void handleApplicationReadyEvent() {
+        if (objectKeyProperties.isMigrateOnStartup())
+            Thread.ofVirtual().name("object-key-migration").start(objectKeyMigrationService::migrateAllUsers);
+    }
+}
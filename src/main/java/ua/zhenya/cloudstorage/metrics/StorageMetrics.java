@@ -0,0 +1,100 @@
+package ua.zhenya.cloudstorage.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Counts the bytes of file content uploaded by and downloaded to clients, as {@code storage.transfer.bytes} tagged by
+ * direction. Content read by background jobs, such as the files packed into an archive, is tagged with
+ * {@code source=job}, so it is not mistaken for client traffic.
+ */
+@Component
+public class StorageMetrics {
+    private static final String TRANSFER_BYTES = "storage.transfer.bytes";
+
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+    private final Counter jobReadBytes;
+
+    public StorageMetrics(MeterRegistry meterRegistry) {
+        uploadedBytes = Counter.builder(TRANSFER_BYTES)
+                .tag("direction", "upload")
+                .tag("source", "client")
+                .baseUnit(BaseUnits.BYTES)
+                .description("File content received from clients")
+                .register(meterRegistry);
+        downloadedBytes = Counter.builder(TRANSFER_BYTES)
+                .tag("direction", "download")
+                .tag("source", "client")
+                .baseUnit(BaseUnits.BYTES)
+                .description("File content sent to clients")
+                .register(meterRegistry);
+        jobReadBytes = Counter.builder(TRANSFER_BYTES)
+                .tag("direction", "download")
+                .tag("source", "job")
+                .baseUnit(BaseUnits.BYTES)
+                .description("File content read by background jobs")
+                .register(meterRegistry);
+    }
+
+    public void recordUpload(long bytes) {
+        if (bytes > 0)
+            uploadedBytes.increment(bytes);
+    }
+
+    /**
+     * Counts the bytes as they are read, so a download cut short by the client is only counted as far as it got.
+     */
+    public InputStream countDownload(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0)
+                    downloadedBytes.increment();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0)
+                    downloadedBytes.increment(read);
+                return read;
+            }
+        };
+    }
+
+    public StreamingResponseBody countDownload(StreamingResponseBody content) {
+        return count(content, downloadedBytes);
+    }
+
+    public StreamingResponseBody countJobRead(StreamingResponseBody content) {
+        return count(content, jobReadBytes);
+    }
+
+    private static StreamingResponseBody count(StreamingResponseBody content, Counter counter) {
+        return outputStream -> content.writeTo(new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                counter.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                counter.increment(len);
+            }
+        });
+    }
+}
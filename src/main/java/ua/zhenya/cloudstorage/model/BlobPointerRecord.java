@@ -0,0 +1,50 @@
+package ua.zhenya.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records which blob the pointer object at {@code path} stands for. Only the server writes these rows, so whether an
+ * object is a pointer never depends on anything a client could have set on the object itself.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@Table(name = "blob_pointers")
+public class BlobPointerRecord {
+    @Id
+    private String path;
+    @Column(nullable = false)
+    private String contentHash;
+    @Column(nullable = false)
+    private Long size;
+    @Column(nullable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getEffectiveClass(this) != getEffectiveClass(obj)) return false;
+        return getPath() != null && getPath().equals(((BlobPointerRecord) obj).getPath());
+    }
+
+    @Override
+    public final int hashCode() {
+        return getEffectiveClass(this).hashCode();
+    }
+
+    private static Class<?> getEffectiveClass(Object o) {
+        return o instanceof HibernateProxy
+                ? ((HibernateProxy) o).getHibernateLazyInitializer().getClass()
+                : o.getClass();
+    }
+}
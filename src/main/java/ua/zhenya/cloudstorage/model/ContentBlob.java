@@ -0,0 +1,53 @@
+package ua.zhenya.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.time.LocalDateTime;
+
+/**
+ * Deduplicated file content, stored once under its SHA-256 hash and shared by every file that references it.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@Table(name = "blobs")
+public class ContentBlob {
+    @Id
+    private String contentHash;
+    @Column(nullable = false)
+    private Long size;
+    @Column(nullable = false)
+    private Integer refCount;
+    @Column(nullable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    @Column(nullable = false)
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getEffectiveClass(this) != getEffectiveClass(obj)) return false;
+        return getContentHash() != null && getContentHash().equals(((ContentBlob) obj).getContentHash());
+    }
+
+    @Override
+    public final int hashCode() {
+        return getEffectiveClass(this).hashCode();
+    }
+
+    private static Class<?> getEffectiveClass(Object o) {
+        return o instanceof HibernateProxy
+                ? ((HibernateProxy) o).getHibernateLazyInitializer().getClass()
+                : o.getClass();
+    }
+}
@@ -0,0 +1,35 @@
+package ua.zhenya.cloudstorage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ua.zhenya.cloudstorage.dto.JobStatus;
+import ua.zhenya.cloudstorage.dto.JobType;
+
+import java.time.Instant;
+
+/**
+ * State of a background storage operation. Stored as JSON in Redis so that any node can report it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Job {
+    private String id;
+    private Integer userId;
+    private JobType type;
+    private JobStatus status;
+    private String path;
+    private String targetPath;
+    private long objectsProcessed;
+    private long totalObjects;
+    private long bytesProcessed;
+    private long totalBytes;
+    private String error;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private Instant heartbeatAt;
+}
@@ -0,0 +1,72 @@
+package ua.zhenya.cloudstorage.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.proxy.HibernateProxy;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Index entry for a single file or directory. Its path is {@code parentPath + name}, with a trailing slash for
+ * directories, so a directory listing is a lookup by {@code (userId, parentPath)}. A file with an {@code objectKey} is
+ * stored under that key and can be moved by updating this row alone; a file without one is stored at its path.
+ * Directory entries carry the total size and number of the files below them.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+@Table(name = "resources")
+public class ResourceMetadata {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Integer userId;
+    @Column(nullable = false)
+    private String parentPath;
+    @Column(nullable = false)
+    private String name;
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ResourceType type;
+    private Long size;
+    private String etag;
+    private String objectKey;
+    private long totalSize;
+    private long fileCount;
+    @Column(nullable = false)
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+    @Column(nullable = false)
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
+    public String getAbsolutePath() {
+        return type == ResourceType.DIRECTORY ? parentPath + name + "/" : parentPath + name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getEffectiveClass(this) != getEffectiveClass(obj)) return false;
+        return getId() != null && getId().equals(((ResourceMetadata) obj).getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return getEffectiveClass(this).hashCode();
+    }
+
+    private static Class<?> getEffectiveClass(Object o) {
+        return o instanceof HibernateProxy
+                ? ((HibernateProxy) o).getHibernateLazyInitializer().getClass()
+                : o.getClass();
+    }
+}
@@ -0,0 +1,27 @@
+package ua.zhenya.cloudstorage.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * State of a chunked or direct upload. Stored as JSON in Redis; the uploaded content itself lives in the bucket under
+ * the session's own key, so any node can accept the next part or complete the upload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+    private String id;
+    private Integer userId;
+    private String path;
+    private String filename;
+    private String contentType;
+    private boolean direct;
+    private long size;
+    private Instant createdAt;
+}
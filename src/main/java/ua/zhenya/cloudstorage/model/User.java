@@ -31,6 +31,7 @@ public class User implements Serializable {
     @Column(nullable = false)
     @CreationTimestamp
     private LocalDateTime registeredAt;
+    private Long storageQuota;
 
     public User(String username, String password) {
         this.username = username;
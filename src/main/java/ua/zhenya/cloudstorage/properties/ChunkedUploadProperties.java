@@ -0,0 +1,17 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.chunked-upload")
+@Data
+public class ChunkedUploadProperties {
+    private Duration ttl = Duration.ofHours(24);
+    private DataSize minPartSize = DataSize.ofMegabytes(5);
+    private Duration sweepInterval = Duration.ofHours(1);
+}
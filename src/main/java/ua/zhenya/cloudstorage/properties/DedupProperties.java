@@ -0,0 +1,17 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.dedup")
+@Data
+public class DedupProperties {
+    private boolean enabled = false;
+    private Duration sweepInterval = Duration.ofHours(1);
+    private Duration gracePeriod = Duration.ofHours(1);
+    private int sweepBatchSize = 1000;
+}
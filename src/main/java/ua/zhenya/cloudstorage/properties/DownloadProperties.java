@@ -0,0 +1,14 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.download")
+@Data
+public class DownloadProperties {
+    private int prefetchDepth = 8;
+    private DataSize prefetchMemoryBudget = DataSize.ofMegabytes(32);
+}
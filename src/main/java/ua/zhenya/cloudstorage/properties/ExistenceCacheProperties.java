@@ -0,0 +1,15 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.existence-cache")
+@Data
+public class ExistenceCacheProperties {
+    private long maximumSize = 10_000;
+    private Duration ttl = Duration.ofSeconds(10);
+}
@@ -0,0 +1,20 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.jobs")
+@Data
+public class JobProperties {
+    private int concurrency = 4;
+    private int queueCapacity = 64;
+    private Duration ttl = Duration.ofHours(24);
+    private Duration progressInterval = Duration.ofSeconds(1);
+    private Duration heartbeatInterval = Duration.ofSeconds(10);
+    private Duration leaseTimeout = Duration.ofMinutes(1);
+    private Duration sweepInterval = Duration.ofHours(1);
+}
@@ -0,0 +1,18 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.listing")
+@Data
+public class ListingProperties {
+    private int defaultLimit = 100;
+    private int maxLimit = 1000;
+    /**
+     * Largest directory whose full listing is cached. The cache is per node; see {@code spring.cache.caffeine.spec}
+     * for how long another node may keep serving a listing after a change.
+     */
+    private int cacheMaxEntries = 1000;
+}
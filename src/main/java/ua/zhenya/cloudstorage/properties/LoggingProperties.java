@@ -0,0 +1,19 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.logging")
+@Data
+public class LoggingProperties {
+    private Duration slowCallThreshold = Duration.ofMillis(500);
+    private double sampleRate = 0.0;
+    private Map<String, Double> methodSampleRates = new HashMap<>();
+    private int maxValueLength = 200;
+}
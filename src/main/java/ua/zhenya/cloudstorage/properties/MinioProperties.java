@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "minio")
 @Data
@@ -12,4 +14,11 @@ public class MinioProperties {
     private String accessKey;
     private String secretKey;
     private String bucketName;
+    private int maxIdleConnections = 64;
+    private Duration keepAlive = Duration.ofMinutes(5);
+    private int maxRequests = 256;
+    private int maxRequestsPerHost = 256;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration readTimeout = Duration.ofMinutes(5);
+    private Duration writeTimeout = Duration.ofMinutes(5);
 }
@@ -0,0 +1,22 @@
+package ua.zhenya.cloudstorage.properties;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.annotation.Validated;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.move")
+@Validated
+@Data
+public class MoveProperties {
+    /**
+     * Objects copied before their sources are removed with a single bulk delete, which S3 limits to 1000 keys.
+     */
+    @Min(1)
+    @Max(1000)
+    private int batchSize = 1000;
+    private int copyConcurrency = 16;
+}
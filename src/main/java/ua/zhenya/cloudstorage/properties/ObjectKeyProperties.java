@@ -0,0 +1,22 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.object-keys")
+@Data
+public class ObjectKeyProperties {
+    private boolean enabled = false;
+    private boolean migrateOnStartup = false;
+    private int migrationBatchSize = 500;
+    private Duration orphanSweepInterval = Duration.ofHours(1);
+    /**
+     * Minimum age of an object key without an index row before it is removed, so content that is still being indexed
+     * is not taken for an orphan.
+     */
+    private Duration orphanGracePeriod = Duration.ofHours(1);
+}
@@ -0,0 +1,15 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.presigned-urls")
+@Data
+public class PresignedUrlProperties {
+    private boolean enabled = false;
+    private Duration expiry = Duration.ofMinutes(15);
+}
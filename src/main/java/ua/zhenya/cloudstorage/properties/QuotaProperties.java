@@ -0,0 +1,18 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.quota")
+@Data
+public class QuotaProperties {
+    private boolean enabled = false;
+    private DataSize defaultLimit = DataSize.ofGigabytes(10);
+    private Duration usageCacheTtl = Duration.ofMinutes(5);
+    private Duration reservationTtl = Duration.ofHours(1);
+}
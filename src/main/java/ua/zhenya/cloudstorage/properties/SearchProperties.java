@@ -0,0 +1,13 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.search")
+@Data
+public class SearchProperties {
+    private int defaultLimit = 100;
+    private int maxLimit = 1000;
+}
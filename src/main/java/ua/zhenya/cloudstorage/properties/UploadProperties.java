@@ -0,0 +1,12 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.upload")
+@Data
+public class UploadProperties {
+    private int concurrency = 8;
+}
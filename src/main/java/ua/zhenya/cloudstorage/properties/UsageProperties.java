@@ -0,0 +1,16 @@
+package ua.zhenya.cloudstorage.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "storage.usage")
+@Data
+public class UsageProperties {
+    private Duration reconcileInterval = Duration.ofHours(24);
+    private int reconcileBatchSize = 100;
+    private Duration reconcileGracePeriod = Duration.ofMinutes(10);
+}
@@ -0,0 +1,47 @@
+package ua.zhenya.cloudstorage.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ua.zhenya.cloudstorage.model.BlobPointerRecord;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BlobPointerRecordRepository extends JpaRepository<BlobPointerRecord, String> {
+    /**
+     * Commits on its own like the reference it records, see {@link ContentBlobRepository#addReference}.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = """
+            INSERT INTO blob_pointers (path, content_hash, size)
+            VALUES (:path, :contentHash, :size)
+            ON CONFLICT (path) DO UPDATE SET content_hash = EXCLUDED.content_hash, size = EXCLUDED.size, created_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    void upsert(@Param("path") String path, @Param("contentHash") String contentHash, @Param("size") long size);
+
+    /**
+     * Locks the pointers matching {@code pattern}, so the references they hold are released exactly once.
+     */
+    @Query(value = "SELECT content_hash FROM blob_pointers WHERE path LIKE :pattern FOR UPDATE", nativeQuery = true)
+    List<String> lockContentHashes(@Param("pattern") String pattern);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM blob_pointers WHERE path LIKE :pattern", nativeQuery = true)
+    int deleteAllByPathLike(@Param("pattern") String pattern);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE blob_pointers SET path = :to || substring(path FROM char_length(:from) + 1)
+            WHERE path IN (:paths)
+            """, nativeQuery = true)
+    int movePaths(@Param("paths") Collection<String> paths, @Param("from") String from, @Param("to") String to);
+}
@@ -0,0 +1,61 @@
+package ua.zhenya.cloudstorage.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ua.zhenya.cloudstorage.model.ContentBlob;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+    /**
+     * References added while storing a file commit on their own, even inside a transaction, so no connection or row
+     * lock is held during the upload. A caller that rolls back hands them back explicitly.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "UPDATE blobs SET ref_count = ref_count + 1, updated_at = CURRENT_TIMESTAMP WHERE content_hash = :contentHash",
+            nativeQuery = true)
+    int addReference(@Param("contentHash") String contentHash);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = """
+            INSERT INTO blobs (content_hash, size, ref_count)
+            VALUES (:contentHash, :size, 1)
+            ON CONFLICT (content_hash)
+            DO UPDATE SET ref_count = blobs.ref_count + 1, updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    void insertOrAddReference(@Param("contentHash") String contentHash, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE blobs SET ref_count = greatest(ref_count - :count, 0), updated_at = CURRENT_TIMESTAMP
+            WHERE content_hash = :contentHash
+            """, nativeQuery = true)
+    int removeReferences(@Param("contentHash") String contentHash, @Param("count") int count);
+
+    /**
+     * Locks up to {@code limit} blobs that have had no references for at least {@code graceSeconds}. Rows locked by
+     * another sweeper are skipped, and an upload that wants to reuse a locked blob waits until the sweep commits.
+     */
+    @Query(value = """
+            SELECT content_hash FROM blobs
+            WHERE ref_count = 0 AND updated_at < CURRENT_TIMESTAMP - make_interval(secs => :graceSeconds)
+            ORDER BY updated_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<String> lockUnreferenced(@Param("graceSeconds") long graceSeconds, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM blobs WHERE content_hash IN (:contentHashes)", nativeQuery = true)
+    int deleteAllByContentHashIn(@Param("contentHashes") Collection<String> contentHashes);
+}
@@ -0,0 +1,208 @@
+package ua.zhenya.cloudstorage.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ResourceMetadataRepository extends JpaRepository<ResourceMetadata, Long> {
+    Optional<ResourceMetadata> findByUserIdAndParentPathAndNameAndType(Integer userId, String parentPath, String name, ResourceType type);
+
+    boolean existsByUserIdAndParentPathAndNameAndType(Integer userId, String parentPath, String name, ResourceType type);
+
+    List<ResourceMetadata> findAllByUserIdAndParentPath(Integer userId, String parentPath, Sort sort);
+
+    List<ResourceMetadata> findAllByUserIdAndParentPath(Integer userId, String parentPath, Pageable pageable);
+
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND parent_path = :parentPath AND (name, type) > (:name, :type)
+            ORDER BY name, type
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findPageAfter(@Param("userId") Integer userId, @Param("parentPath") String parentPath,
+                                         @Param("name") String name, @Param("type") String type, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND parent_path = :parentPath AND (name, type) < (:name, :type)
+            ORDER BY name DESC, type DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findPageBefore(@Param("userId") Integer userId, @Param("parentPath") String parentPath,
+                                          @Param("name") String name, @Param("type") String type, @Param("limit") int limit);
+
+    /**
+     * Case-insensitive substring match on the entry name, served by the trigram index on {@code name}. Matches files
+     * and directories alike; only the user's root entry is left out.
+     */
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND parent_path <> '' AND name ILIKE :pattern
+            ORDER BY name, type, id
+            """, nativeQuery = true)
+    List<ResourceMetadata> searchByName(@Param("userId") Integer userId, @Param("pattern") String pattern, Pageable pageable);
+
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND parent_path <> '' AND name ILIKE :pattern AND (name, type, id) > (:name, :type, :id)
+            ORDER BY name, type, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> searchByNameAfter(@Param("userId") Integer userId, @Param("pattern") String pattern, @Param("name") String name,
+                                             @Param("type") String type, @Param("id") long id, @Param("limit") int limit);
+
+    /**
+     * Files stored under an object key below {@code pattern}, in id order starting after {@code afterId}.
+     */
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND parent_path LIKE :pattern AND object_key IS NOT NULL AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findKeyedFilesAfter(@Param("userId") Integer userId, @Param("pattern") String pattern,
+                                               @Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM resources
+            WHERE user_id = :userId AND type = 'FILE' AND object_key IS NULL AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ResourceMetadata> findUnkeyedFilesAfter(@Param("userId") Integer userId, @Param("afterId") long afterId,
+                                                 @Param("limit") int limit);
+
+    boolean existsByUserIdAndObjectKeyIsNotNull(Integer userId);
+
+    @Query(value = "SELECT object_key FROM resources WHERE object_key IN (:objectKeys)", nativeQuery = true)
+    List<String> findExistingObjectKeys(@Param("objectKeys") Collection<String> objectKeys);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO resources (user_id, parent_path, name, type, size, etag, object_key)
+            VALUES (:userId, :parentPath, :name, 'FILE', :size, :etag, :objectKey)
+            ON CONFLICT (user_id, parent_path, name, type)
+            DO UPDATE SET size = EXCLUDED.size, etag = EXCLUDED.etag, object_key = EXCLUDED.object_key, updated_at = CURRENT_TIMESTAMP
+            """, nativeQuery = true)
+    void upsertFile(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name,
+                    @Param("size") long size, @Param("etag") String etag, @Param("objectKey") String objectKey);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO resources (user_id, parent_path, name, type, size, etag)
+            VALUES (:userId, :parentPath, :name, 'FILE', :size, :etag)
+            ON CONFLICT (user_id, parent_path, name, type) DO NOTHING
+            """, nativeQuery = true)
+    int insertFileIfAbsent(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name,
+                           @Param("size") long size, @Param("etag") String etag);
+
+    /**
+     * Points a file that is still stored at its path to {@code objectKey}; returns 0 if the row is gone or was
+     * migrated concurrently.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE resources SET object_key = :objectKey, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND object_key IS NULL
+            """, nativeQuery = true)
+    int assignObjectKey(@Param("id") long id, @Param("objectKey") String objectKey);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO resources (user_id, parent_path, name, type)
+            VALUES (:userId, :parentPath, :name, 'DIRECTORY')
+            ON CONFLICT (user_id, parent_path, name, type) DO NOTHING
+            """, nativeQuery = true)
+    int insertDirectoryIfAbsent(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name);
+
+    @Modifying
+    @Query(value = """
+            UPDATE resources SET parent_path = :newParentPath, name = :newName, updated_at = CURRENT_TIMESTAMP
+            WHERE user_id = :userId AND parent_path = :parentPath AND name = :name AND type = :type
+            """, nativeQuery = true)
+    int moveEntry(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name,
+                  @Param("type") String type, @Param("newParentPath") String newParentPath, @Param("newName") String newName);
+
+    @Modifying
+    @Query(value = """
+            UPDATE resources SET parent_path = :to || substring(parent_path FROM char_length(:from) + 1), updated_at = CURRENT_TIMESTAMP
+            WHERE user_id = :userId AND parent_path LIKE :fromPattern
+            """, nativeQuery = true)
+    int moveDescendants(@Param("userId") Integer userId, @Param("from") String from, @Param("fromPattern") String fromPattern,
+                        @Param("to") String to);
+
+    @Modifying
+    @Query(value = "DELETE FROM resources WHERE user_id = :userId AND parent_path = :parentPath AND name = :name AND type = :type",
+            nativeQuery = true)
+    int deleteEntry(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name,
+                    @Param("type") String type);
+
+    @Modifying
+    @Query(value = "DELETE FROM resources WHERE user_id = :userId AND parent_path LIKE :pattern", nativeQuery = true)
+    int deleteDescendants(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    @Modifying
+    @Query(value = "DELETE FROM resources WHERE user_id = :userId", nativeQuery = true)
+    int deleteAllByUserId(@Param("userId") Integer userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM resources WHERE user_id = :userId AND type = 'FILE' AND object_key IS NULL", nativeQuery = true)
+    int deleteUnkeyedFiles(@Param("userId") Integer userId);
+
+    @Query(value = "SELECT count(*), coalesce(sum(size), 0) FROM resources WHERE user_id = :userId AND parent_path LIKE :pattern",
+            nativeQuery = true)
+    List<Object[]> summarizeDescendants(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    @Query(value = """
+            SELECT count(*), coalesce(sum(size), 0) FROM resources
+            WHERE user_id = :userId AND type = 'FILE' AND object_key IS NULL
+              AND updated_at < LOCALTIMESTAMP - :minAgeSeconds * INTERVAL '1 second'
+            """, nativeQuery = true)
+    List<Object[]> summarizeUnkeyedFiles(@Param("userId") Integer userId, @Param("minAgeSeconds") long minAgeSeconds);
+
+    @Modifying
+    @Query(value = """
+            UPDATE resources SET total_size = total_size + :bytes, file_count = file_count + :files
+            WHERE user_id = :userId AND parent_path = :parentPath AND name = :name AND type = 'DIRECTORY'
+            """, nativeQuery = true)
+    int adjustUsage(@Param("userId") Integer userId, @Param("parentPath") String parentPath, @Param("name") String name,
+                    @Param("bytes") long bytes, @Param("files") long files);
+
+    /**
+     * Recalculates the usage counters of every directory of the user from its file entries, attributing each file to
+     * all directories on its parent path.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE resources d
+            SET total_size = coalesce(counted.total_size, 0), file_count = coalesce(counted.file_count, 0)
+            FROM resources directory
+            LEFT JOIN (
+                SELECT substring(f.parent_path FROM 1 FOR slash.i) AS directory_path, sum(f.size) AS total_size, count(*) AS file_count
+                FROM resources f
+                CROSS JOIN LATERAL generate_series(1, char_length(f.parent_path)) AS slash(i)
+                WHERE f.user_id = :userId AND f.type = 'FILE' AND substring(f.parent_path FROM slash.i FOR 1) = '/'
+                GROUP BY directory_path
+            ) counted ON directory.parent_path || directory.name || '/' = counted.directory_path
+            WHERE d.id = directory.id AND directory.user_id = :userId AND directory.type = 'DIRECTORY'
+            """, nativeQuery = true)
+    int recomputeUsage(@Param("userId") Integer userId);
+
+    /**
+     * Serializes index rebuilds and structural changes of the same user across application instances until the
+     * surrounding transaction ends.
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lockUserIndex(@Param("key") long key);
+}
@@ -0,0 +1,43 @@
+package ua.zhenya.cloudstorage.service;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BlobService {
+    String BLOB_PREFIX = "blobs/";
+    String BLOB_PATH = BLOB_PREFIX + "%s";
+
+    boolean isEnabled();
+
+    BlobPointer storeContent(InputStreamSource source, long size, String contentType) throws Exception;
+
+    BlobPointer storeFile(String path, InputStreamSource source, long size, String contentType) throws Exception;
+
+    BlobPointer storeContent(InputStream inputStream, long size, String contentType) throws Exception;
+
+    BlobPointer storeFile(String path, InputStream inputStream, long size, String contentType) throws Exception;
+
+    Optional<BlobPointer> findPointer(String path);
+
+    String resolveContentPath(String path);
+
+    void movePointers(List<String> paths, String fromPath, String toPath);
+
+    void removePointers(String path);
+
+    void detachPointer(String path);
+
+    void releaseReferences(Collection<String> contentHashes);
+
+    void sweepUnreferencedBlobs();
+
+    record BlobPointer(String contentHash, long size) {
+        public String blobPath() {
+            return BLOB_PATH.formatted(contentHash);
+        }
+    }
+}
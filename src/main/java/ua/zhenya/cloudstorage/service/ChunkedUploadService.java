@@ -0,0 +1,23 @@
+package ua.zhenya.cloudstorage.service;
+
+import ua.zhenya.cloudstorage.dto.DirectUploadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+
+import java.io.InputStream;
+
+public interface ChunkedUploadService {
+    UploadSessionResponse initiateUpload(Integer userId, String path, String filename, long size, String contentType);
+
+    DirectUploadResponse initiateDirectUpload(Integer userId, String path, String filename, String contentType);
+
+    void uploadPart(Integer userId, String uploadId, int partNumber, InputStream inputStream, long size);
+
+    UploadSessionResponse getUpload(Integer userId, String uploadId);
+
+    ResourceResponse completeUpload(Integer userId, String uploadId);
+
+    void abortUpload(Integer userId, String uploadId);
+
+    void sweepExpiredUploads();
+}
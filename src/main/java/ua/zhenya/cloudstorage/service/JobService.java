@@ -0,0 +1,24 @@
+package ua.zhenya.cloudstorage.service;
+
+import ua.zhenya.cloudstorage.dto.JobResponse;
+import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+
+public interface JobService {
+    JobResponse submitMove(Integer userId, String from, String to);
+
+    JobResponse submitDelete(Integer userId, String path);
+
+    JobResponse submitArchive(Integer userId, String path);
+
+    JobResponse getJob(Integer userId, String jobId);
+
+    ResourceDownloadResponse downloadJobResult(Integer userId, String jobId);
+
+    void deleteJob(Integer userId, String jobId);
+
+    void renewLeases();
+
+    void recoverStaleJobs();
+
+    void sweepExpiredResults();
+}
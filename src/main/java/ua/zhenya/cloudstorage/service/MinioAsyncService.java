@@ -0,0 +1,19 @@
+package ua.zhenya.cloudstorage.service;
+
+import io.minio.GetObjectResponse;
+import io.minio.StatObjectResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous counterpart of {@link MinioService}: every call returns as soon as the request is sent, and the future
+ * completes on the storage client's dispatcher once storage has answered. Only waiting for the response is
+ * asynchronous; the returned object body is still a blocking stream.
+ */
+public interface MinioAsyncService {
+    CompletableFuture<GetObjectResponse> getObject(String fullPath);
+
+    CompletableFuture<GetObjectResponse> getObject(String fullPath, long offset, Long length);
+
+    CompletableFuture<StatObjectResponse> getObjectInfo(String path);
+}
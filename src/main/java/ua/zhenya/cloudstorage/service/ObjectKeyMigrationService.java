@@ -0,0 +1,9 @@
+package ua.zhenya.cloudstorage.service;
+
+public interface ObjectKeyMigrationService {
+    void migrateAllUsers();
+
+    void migrateUser(Integer userId);
+
+    void sweepOrphanedObjects();
+}
@@ -0,0 +1,13 @@
+package ua.zhenya.cloudstorage.service;
+
+/**
+ * Receives incremental progress of long-running storage operations. Implementations may be called
+ * concurrently from several worker threads.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    ProgressListener NONE = (objects, bytes) -> {
+    };
+
+    void onProgress(long objects, long bytes);
+}
@@ -0,0 +1,19 @@
+package ua.zhenya.cloudstorage.service;
+
+import java.time.Duration;
+
+public interface QuotaService {
+    void checkAvailable(Integer userId, long bytes);
+
+    long getAvailable(Integer userId);
+
+    void reserve(Integer userId, long bytes);
+
+    void hold(Integer userId, String holdId, long bytes, Duration ttl);
+
+    void renewHold(Integer userId, String holdId, Duration ttl);
+
+    void releaseHold(Integer userId, String holdId);
+
+    void evictUsage(Integer userId);
+}
@@ -0,0 +1,56 @@
+package ua.zhenya.cloudstorage.service;
+
+import org.springframework.data.domain.Sort;
+import ua.zhenya.cloudstorage.dto.ResourceSummary;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+public interface ResourceIndexService {
+    boolean isIndexed(Integer userId);
+
+    void reindexUser(Integer userId);
+
+    void markStale(Integer userId);
+
+    void lockUser(Integer userId);
+
+    Optional<ResourceMetadata> findResource(Integer userId, String absolutePath);
+
+    boolean resourceExists(Integer userId, String absolutePath);
+
+    List<ResourceMetadata> listDirectory(Integer userId, String absolutePath);
+
+    List<ResourceMetadata> listDirectoryPage(Integer userId, String absolutePath, String afterName, ResourceType afterType,
+                                             Sort.Direction direction, int limit);
+
+    List<ResourceMetadata> searchResources(Integer userId, String query, int page, int limit);
+
+    List<ResourceMetadata> searchResourcesAfter(Integer userId, String query, String afterName, ResourceType afterType, Long afterId,
+                                                int limit);
+
+    ResourceSummary summarizeResource(Integer userId, String absolutePath);
+
+    void indexFile(Integer userId, String absolutePath, long size, String etag);
+
+    void indexFile(Integer userId, String absolutePath, long size, String etag, String objectKey);
+
+    void indexDirectory(Integer userId, String absolutePath);
+
+    void moveResource(Integer userId, String absoluteFromPath, String absoluteToPath);
+
+    void removeResource(Integer userId, String absolutePath);
+
+    List<ResourceMetadata> listKeyedFiles(Integer userId, String absolutePath, long afterId, int limit);
+
+    List<ResourceMetadata> listUnkeyedFiles(Integer userId, long afterId, int limit);
+
+    boolean assignObjectKey(Long id, String objectKey);
+
+    ResourceSummary summarizeUnkeyedFiles(Integer userId, Duration minAge);
+
+    void recomputeUsage(Integer userId);
+}
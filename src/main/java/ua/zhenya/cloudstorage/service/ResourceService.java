@@ -1,13 +1,28 @@
 package ua.zhenya.cloudstorage.service;
 
+import org.springframework.data.domain.Sort;
 import org.springframework.web.multipart.MultipartFile;
+import ua.zhenya.cloudstorage.dto.PresignedUrlResponse;
 import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceFileInfo;
+import ua.zhenya.cloudstorage.dto.ResourcePageResponse;
 import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.ResourceSummary;
+import ua.zhenya.cloudstorage.dto.StorageUsageResponse;
+import ua.zhenya.cloudstorage.dto.UploadResultResponse;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ResourceService {
-    List<ResourceResponse> uploadResources(Integer userId, String path, List<MultipartFile> files);
+    UploadResultResponse uploadResources(Integer userId, String path, List<MultipartFile> files);
+
+    ResourceResponse uploadResource(Integer userId, String path, String filename, InputStream inputStream, long size, String contentType);
+
+    void checkUploadTarget(Integer userId, String path, String filename);
+
+    ResourceResponse composeUploadedFile(Integer userId, String path, String filename, List<String> partObjectNames, long size, String contentType);
 
     ResourceResponse getResourceInfo(Integer userId, String path);
 
@@ -17,11 +32,37 @@ public interface ResourceService {
 
     List<ResourceResponse> getDirectoryContent(Integer userId, String path);
 
+    Iterable<ResourceResponse> streamDirectoryContent(Integer userId, String path);
+
+    ResourcePageResponse getDirectoryContentPage(Integer userId, String path, String continuationToken, Integer limit, Sort.Direction direction);
+
     void deleteResource(Integer userId, String path);
 
+    void deleteResource(Integer userId, String path, ProgressListener progressListener);
+
     ResourceDownloadResponse downloadResource(Integer userId, String path);
 
+    ResourceDownloadResponse downloadResource(Integer userId, String path, ProgressListener progressListener);
+
+    ResourceFileInfo getFileInfo(Integer userId, String path);
+
+    InputStream getFileContent(Integer userId, String path, long offset, Long length);
+
+    CompletableFuture<ResourceDownloadResponse> downloadFileAsync(Integer userId, String path);
+
+    PresignedUrlResponse getDownloadUrl(Integer userId, String path);
+
     ResourceResponse moveResource(Integer userId, String from, String to);
 
+    ResourceResponse moveResource(Integer userId, String from, String to, ProgressListener progressListener);
+
+    ResourceSummary summarizeResource(Integer userId, String path);
+
+    StorageUsageResponse getUsage(Integer userId, String path);
+
     List<ResourceResponse> searchResources(Integer userId, String query);
+
+    List<ResourceResponse> searchResources(Integer userId, String query, int page, Integer limit);
+
+    Iterable<ResourceResponse> streamSearchResults(Integer userId, String query);
 }
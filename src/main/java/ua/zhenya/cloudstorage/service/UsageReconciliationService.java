@@ -0,0 +1,7 @@
+package ua.zhenya.cloudstorage.service;
+
+public interface UsageReconciliationService {
+    void reconcileAllUsers();
+
+    void reconcileUser(Integer userId);
+}
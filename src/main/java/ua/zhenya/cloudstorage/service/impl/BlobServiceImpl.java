@@ -0,0 +1,303 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.zhenya.cloudstorage.properties.DedupProperties;
+import ua.zhenya.cloudstorage.repository.BlobPointerRecordRepository;
+import ua.zhenya.cloudstorage.repository.ContentBlobRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.MinioService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
+/**
+ * Content-addressed file storage. The bytes of a deduplicated file are kept once under {@code blobs/<sha256>}, and
+ * the user's own key holds an empty pointer object. Which blob a pointer stands for is recorded in
+ * {@code blob_pointers}, written only by {@link #storeFile}, so nothing a client sets on an object can turn it into a
+ * pointer to someone else's content. Pointer records follow their objects when they are moved and are removed with
+ * them. Files stored under object keys skip the pointer and reference the blob from their index row instead. The
+ * reference count in {@code blobs} is the number of pointers and such rows, and blobs whose count has stayed at zero
+ * for the grace period are removed by a periodic sweep while deduplication is enabled.
+ * <p>
+ * Content that can be read only once is hashed while it is written to {@code blobs/staging/} and then copied to its
+ * blob on the storage side, so streamed uploads are deduplicated without being spooled locally. The same sweep removes
+ * staged objects older than the grace period that a failed node left behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobServiceImpl implements BlobService {
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_PREFIX = BLOB_PREFIX + "staging/";
+    private static final String STAGING_PATH = STAGING_PREFIX + "%s";
+
+    private final MinioService minioService;
+    private final ContentBlobRepository contentBlobRepository;
+    private final BlobPointerRecordRepository blobPointerRecordRepository;
+    private final DedupProperties dedupProperties;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    public boolean isEnabled() {
+        return dedupProperties.isEnabled();
+    }
+
+    /**
+     * The caller owns the added reference. It commits on its own, so it is handed back if the caller's transaction
+     * rolls back.
+     */
+    @Override
+    public BlobPointer storeContent(InputStreamSource source, long size, String contentType) throws Exception {
+        BlobPointer pointer = storeBlob(source, size, contentType);
+        compensateOnRollback(pointer.contentHash(), null);
+        return pointer;
+    }
+
+    @Override
+    public BlobPointer storeFile(String path, InputStreamSource source, long size, String contentType) throws Exception {
+        return writePointer(path, storeBlob(source, size, contentType), contentType);
+    }
+
+    @Override
+    public BlobPointer storeContent(InputStream inputStream, long size, String contentType) throws Exception {
+        BlobPointer pointer = storeBlob(inputStream, size, contentType);
+        compensateOnRollback(pointer.contentHash(), null);
+        return pointer;
+    }
+
+    @Override
+    public BlobPointer storeFile(String path, InputStream inputStream, long size, String contentType) throws Exception {
+        return writePointer(path, storeBlob(inputStream, size, contentType), contentType);
+    }
+
+    @Override
+    public Optional<BlobPointer> findPointer(String path) {
+        return blobPointerRecordRepository.findById(path)
+                .map(record -> new BlobPointer(record.getContentHash(), record.getSize()));
+    }
+
+    @Override
+    public String resolveContentPath(String path) {
+        return findPointer(path).map(BlobPointer::blobPath).orElse(path);
+    }
+
+    /**
+     * Renames the pointer records of {@code paths}, which are below or equal to {@code fromPath}, to the same location
+     * below {@code toPath}. Runs in a transaction of its own, since the objects have already been moved in storage by
+     * the time it is called.
+     */
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void movePointers(List<String> paths, String fromPath, String toPath) {
+        if (!paths.isEmpty())
+            blobPointerRecordRepository.movePaths(paths, fromPath, toPath);
+    }
+
+    /**
+     * Removes the pointer record of the file at {@code path}, or of every file below it if it is a directory, and
+     * releases the references they held.
+     */
+    @Override
+    @Transactional
+    public void removePointers(String path) {
+        String pattern = escapeLike(path) + (isDirectory(path) ? "%" : "");
+        List<String> contentHashes = blobPointerRecordRepository.lockContentHashes(pattern);
+        if (contentHashes.isEmpty())
+            return;
+
+        blobPointerRecordRepository.deleteAllByPathLike(pattern);
+        releaseReferences(contentHashes);
+    }
+
+    /**
+     * Removes the pointer record at {@code path} without releasing its reference, which passes to the caller.
+     */
+    @Override
+    @Transactional
+    public void detachPointer(String path) {
+        blobPointerRecordRepository.deleteAllByPathLike(escapeLike(path));
+    }
+
+    @Override
+    @Transactional
+    public void releaseReferences(Collection<String> contentHashes) {
+        Map<String, Long> counts = contentHashes.stream()
+                .collect(Collectors.groupingBy(Function.identity(), TreeMap::new, Collectors.counting()));
+        counts.forEach((contentHash, count) -> contentBlobRepository.removeReferences(contentHash, count.intValue()));
+    }
+
+    @Override
+    @Transactional
+    public void sweepUnreferencedBlobs() {
+        sweepStagedContent();
+        List<String> contentHashes = contentBlobRepository.lockUnreferenced(dedupProperties.getGracePeriod().toSeconds(),
+                dedupProperties.getSweepBatchSize());
+        if (contentHashes.isEmpty())
+            return;
+
+        Set<String> failedPaths = new HashSet<>();
+        try {
+            List<String> blobPaths = contentHashes.stream().map(BLOB_PATH::formatted).toList();
+            for (Result<DeleteError> result : minioService.deleteObjects(blobPaths)) {
+                DeleteError error = result.get();
+                log.warn("Failed to delete blob '{}': {} ({})", error.objectName(), error.message(), error.code());
+                failedPaths.add(error.objectName());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete unreferenced blobs", e);
+            return;
+        }
+
+        List<String> deleted = contentHashes.stream()
+                .filter(contentHash -> !failedPaths.contains(BLOB_PATH.formatted(contentHash)))
+                .toList();
+        if (!deleted.isEmpty())
+            contentBlobRepository.deleteAllByContentHashIn(deleted);
+        log.info("Removed {} unreferenced blob(s)", deleted.size());
+    }
+
+    /**
+     * Hands back what {@link #storeContent} or {@link #storeFile} committed on their own if the caller's transaction
+     * rolls back: the added reference, and the pointer record if one was written.
+     */
+    private void compensateOnRollback(String contentHash, String pointerPath) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK)
+                    return;
+
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                try {
+                    transactionTemplate.executeWithoutResult(transaction -> {
+                        if (contentHash != null)
+                            contentBlobRepository.removeReferences(contentHash, 1);
+                        if (pointerPath != null)
+                            blobPointerRecordRepository.deleteAllByPathLike(escapeLike(pointerPath));
+                    });
+                } catch (Exception e) {
+                    log.warn("Failed to release blob references of a rolled back upload", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes staged content older than the grace period, which a node left behind when it failed mid-upload.
+     */
+    private void sweepStagedContent() {
+        ZonedDateTime abandonedBefore = ZonedDateTime.now().minus(dedupProperties.getGracePeriod());
+        List<String> abandoned = new ArrayList<>();
+        try {
+            for (Result<Item> result : minioService.listObjects(STAGING_PREFIX, true)) {
+                Item item = result.get();
+                if (item.lastModified().isBefore(abandonedBefore))
+                    abandoned.add(item.objectName());
+            }
+            if (abandoned.isEmpty())
+                return;
+
+            for (Result<DeleteError> result : minioService.deleteObjects(abandoned)) {
+                DeleteError error = result.get();
+                log.warn("Failed to delete staged content '{}': {} ({})", error.objectName(), error.message(), error.code());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete abandoned staged content", e);
+        }
+    }
+
+    private BlobPointer writePointer(String path, BlobPointer pointer, String contentType) throws Exception {
+        try {
+            minioService.uploadObject(path, new ByteArrayInputStream(new byte[0]), 0, contentType);
+            blobPointerRecordRepository.findById(path)
+                    .ifPresent(replaced -> contentBlobRepository.removeReferences(replaced.getContentHash(), 1));
+            blobPointerRecordRepository.upsert(path, pointer.contentHash(), pointer.size());
+        } catch (Exception e) {
+            releaseReferences(List.of(pointer.contentHash()));
+            throw e;
+        }
+        compensateOnRollback(pointer.contentHash(), path);
+        return pointer;
+    }
+
+    /**
+     * Stages the content under a key of its own while hashing it. New content is copied from there to its blob, and
+     * the staged object is removed either way. When {@code size} is unknown, the stored size is read back.
+     */
+    private BlobPointer storeBlob(InputStream inputStream, long size, String contentType) throws Exception {
+        String stagingPath = STAGING_PATH.formatted(UUID.randomUUID());
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try {
+            minioService.uploadObject(stagingPath, new DigestInputStream(inputStream, digest), size, contentType);
+            long storedSize = size >= 0 ? size : minioService.getObjectInfo(stagingPath).size();
+            BlobPointer pointer = new BlobPointer(HexFormat.of().formatHex(digest.digest()), storedSize);
+            if (contentBlobRepository.addReference(pointer.contentHash()) == 0) {
+                minioService.copyObject(stagingPath, pointer.blobPath());
+                contentBlobRepository.insertOrAddReference(pointer.contentHash(), storedSize);
+            }
+            return pointer;
+        } finally {
+            try {
+                minioService.deleteObject(stagingPath);
+            } catch (Exception e) {
+                log.warn("Failed to delete staged content '{}'", stagingPath, e);
+            }
+        }
+    }
+
+    /**
+     * Hashes the content first and uploads it only if no blob with the same hash exists yet, so a duplicate costs a
+     * local read and a tiny request instead of a full transfer.
+     */
+    private BlobPointer storeBlob(InputStreamSource source, long size, String contentType) throws Exception {
+        String contentHash = hash(source);
+        BlobPointer pointer = new BlobPointer(contentHash, size);
+        if (contentBlobRepository.addReference(contentHash) == 0) {
+            try (InputStream inputStream = source.getInputStream()) {
+                minioService.uploadObject(pointer.blobPath(), inputStream, size, contentType);
+            }
+            contentBlobRepository.insertOrAddReference(contentHash, size);
+        }
+        return pointer;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String hash(InputStreamSource source) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream inputStream = source.getInputStream()) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
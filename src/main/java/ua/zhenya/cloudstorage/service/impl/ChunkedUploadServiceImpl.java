@@ -0,0 +1,400 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ua.zhenya.cloudstorage.dto.DirectUploadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.model.UploadSession;
+import ua.zhenya.cloudstorage.properties.ChunkedUploadProperties;
+import ua.zhenya.cloudstorage.properties.DeleteProperties;
+import ua.zhenya.cloudstorage.properties.PresignedUrlProperties;
+import ua.zhenya.cloudstorage.service.ChunkedUploadService;
+import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.QuotaService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static ua.zhenya.cloudstorage.utils.Constants.UPLOAD_PREFIX;
+
+/**
+ * Chunked uploads: every part is stored as its own object under {@code uploads/<id>/}, and completing the upload
+ * concatenates them server-side into the target file with a single compose request, so no part passes through the
+ * application twice and a failed part can simply be sent again. The declared size is held against the user's quota
+ * from the start and parts may not exceed it, so storage cannot be filled past the quota before the upload is
+ * completed. Part sizes are admitted atomically against a per-upload hash in Redis before any bytes are stored, so
+ * concurrent parts cannot together exceed the declared size.
+ * <p>
+ * Direct uploads send the whole file straight to storage with a presigned POST policy. The policy only covers the
+ * staging key {@code uploads/<id>}, never the file's final location, so nothing the client does with it after the
+ * upload is completed can touch the stored file. The policy caps the file at the quota the user has left.
+ * <p>
+ * Objects left behind by uploads that were never completed are removed by a periodic sweep once their session has
+ * expired.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+    private static final String SESSION_KEY = "cloud-storage:uploads:%s";
+    private static final String PART_SIZES_KEY = SESSION_KEY + ":parts";
+    private static final String STAGING_PATH = UPLOAD_PREFIX + "%s";
+    private static final String PARTS_PATH = STAGING_PATH + "/";
+    private static final String PART_PATH = PARTS_PATH + "%05d";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final int MAX_PART_NUMBER = 10_000;
+    private static final long PART_REJECTED = -2;
+    private static final RedisScript<Long> ADMIT_PART_SCRIPT = RedisScript.of("""
+            local total = tonumber(ARGV[2])
+            local sizes = redis.call('HGETALL', KEYS[1])
+            for i = 1, #sizes, 2 do
+                if sizes[i] ~= ARGV[1] then
+                    total = total + tonumber(sizes[i + 1])
+                end
+            end
+            if total > tonumber(ARGV[3]) then
+                return -2
+            end
+            local previous = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '-1')
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return previous
+            """, Long.class);
+    private static final RedisScript<Long> RESTORE_PART_SCRIPT = RedisScript.of("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+                return 0
+            end
+            if tonumber(ARGV[3]) < 0 then
+                redis.call('HDEL', KEYS[1], ARGV[1])
+            else
+                redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+            end
+            return 1
+            """, Long.class);
+
+    private final ResourceService resourceService;
+    private final MinioService minioService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ChunkedUploadProperties chunkedUploadProperties;
+    private final PresignedUrlProperties presignedUrlProperties;
+    private final QuotaService quotaService;
+    private final DeleteProperties deleteProperties;
+
+    @Override
+    public UploadSessionResponse initiateUpload(Integer userId, String path, String filename, long size, String contentType) {
+        if (size < 0)
+            throw new CloudStorageException("Upload size must not be negative!", HttpStatus.BAD_REQUEST);
+        resourceService.checkUploadTarget(userId, path, filename);
+
+        UploadSession session = newSession(userId, path, filename, size, contentType, false);
+        quotaService.hold(userId, session.getId(), size, chunkedUploadProperties.getTtl());
+        try {
+            save(session);
+        } catch (RuntimeException e) {
+            quotaService.releaseHold(userId, session.getId());
+            throw e;
+        }
+        return toResponse(session, List.of());
+    }
+
+    @Override
+    public DirectUploadResponse initiateDirectUpload(Integer userId, String path, String filename, String contentType) {
+        if (!presignedUrlProperties.isEnabled())
+            throw new CloudStorageException("Direct transfers are disabled!", HttpStatus.NOT_IMPLEMENTED);
+        resourceService.checkUploadTarget(userId, path, filename);
+
+        UploadSession session = newSession(userId, path, filename, 0, contentType, true);
+        Instant expiresAt = Instant.now().plus(presignedUrlProperties.getExpiry());
+        long maxSize = quotaService.getAvailable(userId);
+        Map<String, String> fields;
+        try {
+            fields = minioService.getPresignedPostFormData(STAGING_PATH.formatted(session.getId()), presignedUrlProperties.getExpiry(),
+                    maxSize);
+        } catch (Exception e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        save(session);
+        return new DirectUploadResponse(session.getId(), minioService.getBucketUrl(), "POST", fields, expiresAt);
+    }
+
+    @Override
+    public void uploadPart(Integer userId, String uploadId, int partNumber, InputStream inputStream, long size) {
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER)
+            throw new CloudStorageException("Invalid part number: must be between 1 and %d!".formatted(MAX_PART_NUMBER), HttpStatus.BAD_REQUEST);
+        if (size < 0)
+            throw new CloudStorageException("Part size must be known in advance!", HttpStatus.LENGTH_REQUIRED);
+
+        UploadSession session = findSession(userId, uploadId);
+        if (session.isDirect())
+            throw new CloudStorageException("Direct uploads do not accept parts!", HttpStatus.BAD_REQUEST);
+        long previousSize = admitPart(session, partNumber, size);
+
+        try {
+            minioService.uploadObject(PART_PATH.formatted(session.getId(), partNumber), inputStream, size, DEFAULT_CONTENT_TYPE);
+        } catch (Exception e) {
+            redisTemplate.execute(RESTORE_PART_SCRIPT, List.of(PART_SIZES_KEY.formatted(session.getId())),
+                    String.valueOf(partNumber), String.valueOf(size), String.valueOf(previousSize));
+            throw new CloudStorageException("Error uploading part %d!".formatted(partNumber), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        redisTemplate.expire(SESSION_KEY.formatted(session.getId()), chunkedUploadProperties.getTtl());
+        quotaService.renewHold(userId, session.getId(), chunkedUploadProperties.getTtl());
+    }
+
+    @Override
+    public UploadSessionResponse getUpload(Integer userId, String uploadId) {
+        UploadSession session = findSession(userId, uploadId);
+        return toResponse(session, listParts(session));
+    }
+
+    @Override
+    public ResourceResponse completeUpload(Integer userId, String uploadId) {
+        UploadSession session = findSession(userId, uploadId);
+        if (session.isDirect())
+            return completeDirectUpload(session);
+
+        List<Item> parts = listParts(session);
+        if (parts.isEmpty())
+            throw new CloudStorageException("No parts have been uploaded!", HttpStatus.BAD_REQUEST);
+
+        long minPartSize = chunkedUploadProperties.getMinPartSize().toBytes();
+        long totalSize = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            Item part = parts.get(i);
+            if (partNumberOf(session, part) != i + 1)
+                throw new CloudStorageException("Part %d is missing!".formatted(i + 1), HttpStatus.BAD_REQUEST);
+            if (i < parts.size() - 1 && part.size() < minPartSize)
+                throw new CloudStorageException("Part %d is smaller than the minimum part size of %d bytes!".formatted(i + 1, minPartSize),
+                        HttpStatus.BAD_REQUEST);
+            totalSize += part.size();
+        }
+        if (totalSize > session.getSize())
+            throw new CloudStorageException("Parts exceed the declared upload size of %d bytes!".formatted(session.getSize()),
+                    HttpStatus.BAD_REQUEST);
+
+        List<String> partNames = parts.stream().map(Item::objectName).toList();
+        ResourceResponse resource = composeHeldUpload(session, partNames, totalSize);
+        discard(session, partNames);
+        return resource;
+    }
+
+    @Override
+    public void abortUpload(Integer userId, String uploadId) {
+        UploadSession session = findSession(userId, uploadId);
+        List<String> objectNames = new ArrayList<>(listParts(session).stream().map(Item::objectName).toList());
+        if (session.isDirect())
+            objectNames.add(STAGING_PATH.formatted(session.getId()));
+        quotaService.releaseHold(userId, session.getId());
+        discard(session, objectNames);
+    }
+
+    /**
+     * Removes the stored parts and staged files of uploads whose session is gone: it expired, or the client kept
+     * posting to a direct upload's staging key after completing it. Sessions are looked up once per upload.
+     */
+    @Override
+    @Scheduled(initialDelayString = "#{@chunkedUploadProperties.sweepInterval.toMillis()}",
+            fixedDelayString = "#{@chunkedUploadProperties.sweepInterval.toMillis()}")
+    public void sweepExpiredUploads() {
+        Map<String, Boolean> activeUploads = new HashMap<>();
+        int batchSize = deleteProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        long removed = 0;
+        try {
+            for (Result<Item> result : minioService.listObjects(UPLOAD_PREFIX, true)) {
+                String objectName = result.get().objectName();
+                String uploadId = uploadIdOf(objectName);
+                if (activeUploads.computeIfAbsent(uploadId, id -> Boolean.TRUE.equals(redisTemplate.hasKey(SESSION_KEY.formatted(id)))))
+                    continue;
+
+                batch.add(objectName);
+                if (batch.size() == batchSize) {
+                    removed += deleteExpired(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                removed += deleteExpired(batch);
+        } catch (Exception e) {
+            log.warn("Failed to sweep expired uploads", e);
+        }
+        if (removed > 0)
+            log.info("Removed {} object(s) of expired uploads", removed);
+    }
+
+    private long deleteExpired(List<String> objectNames) throws Exception {
+        long failed = 0;
+        for (Result<DeleteError> result : minioService.deleteObjects(objectNames)) {
+            DeleteError error = result.get();
+            log.warn("Failed to delete upload object '{}': {} ({})", error.objectName(), error.message(), error.code());
+            failed++;
+        }
+        return objectNames.size() - failed;
+    }
+
+    private static String uploadIdOf(String objectName) {
+        String relativeName = objectName.substring(UPLOAD_PREFIX.length());
+        int separator = relativeName.indexOf('/');
+        return separator < 0 ? relativeName : relativeName.substring(0, separator);
+    }
+
+    /**
+     * Swaps the upload's hold for the reservation taken while the file is assembled, so its bytes are not counted
+     * twice. If the assembly fails the hold is taken again, as the client may still fix the parts and retry.
+     */
+    private ResourceResponse composeHeldUpload(UploadSession session, List<String> partNames, long size) {
+        quotaService.releaseHold(session.getUserId(), session.getId());
+        try {
+            return resourceService.composeUploadedFile(session.getUserId(), session.getPath(), session.getFilename(), partNames,
+                    size, session.getContentType());
+        } catch (RuntimeException e) {
+            try {
+                quotaService.hold(session.getUserId(), session.getId(), session.getSize(), chunkedUploadProperties.getTtl());
+            } catch (CloudStorageException holdException) {
+                log.warn("Failed to restore quota hold of upload {}", session.getId(), holdException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the staged file to a part key first: the presigned policy does not cover that key, so the content whose
+     * size is charged to the user is exactly the content that is stored, even if the client keeps posting to the
+     * staging key.
+     */
+    private ResourceResponse completeDirectUpload(UploadSession session) {
+        String stagingPath = STAGING_PATH.formatted(session.getId());
+        String partPath = PART_PATH.formatted(session.getId(), 1);
+        long size;
+        try {
+            minioService.copyObject(stagingPath, partPath);
+            size = minioService.getObjectInfo(partPath).size();
+        } catch (ErrorResponseException e) {
+            throw new CloudStorageException("No file has been uploaded!", HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        ResourceResponse resource = resourceService.composeUploadedFile(session.getUserId(), session.getPath(), session.getFilename(),
+                List.of(partPath), size, session.getContentType());
+        discard(session, List.of(stagingPath, partPath));
+        return resource;
+    }
+
+    /**
+     * Records the part's size if all parts together still fit in the declared size, and returns the size recorded
+     * for the part before, or -1 if there was none, so a failed upload can put it back.
+     */
+    private long admitPart(UploadSession session, int partNumber, long size) {
+        Long previousSize = redisTemplate.execute(ADMIT_PART_SCRIPT, List.of(PART_SIZES_KEY.formatted(session.getId())),
+                String.valueOf(partNumber), String.valueOf(size), String.valueOf(session.getSize()),
+                String.valueOf(chunkedUploadProperties.getTtl().toMillis()));
+        if (previousSize == null)
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        if (previousSize == PART_REJECTED)
+            throw new CloudStorageException("Parts exceed the declared upload size of %d bytes!".formatted(session.getSize()),
+                    HttpStatus.BAD_REQUEST);
+        return previousSize;
+    }
+
+    private List<Item> listParts(UploadSession session) {
+        List<Item> parts = new ArrayList<>();
+        try {
+            for (Result<Item> result : minioService.listObjects(PARTS_PATH.formatted(session.getId()), true))
+                parts.add(result.get());
+        } catch (Exception e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return parts;
+    }
+
+    private void discard(UploadSession session, List<String> partNames) {
+        redisTemplate.delete(List.of(SESSION_KEY.formatted(session.getId()), PART_SIZES_KEY.formatted(session.getId())));
+        if (partNames.isEmpty())
+            return;
+
+        try {
+            for (Result<DeleteError> result : minioService.deleteObjects(partNames)) {
+                DeleteError error = result.get();
+                log.warn("Failed to delete upload part '{}': {} ({})", error.objectName(), error.message(), error.code());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete parts of upload {}", session.getId(), e);
+        }
+    }
+
+    private UploadSession findSession(Integer userId, String uploadId) {
+        String json = redisTemplate.opsForValue().get(SESSION_KEY.formatted(uploadId));
+        if (json == null)
+            throw new CloudStorageException("Upload not found!", HttpStatus.NOT_FOUND);
+
+        UploadSession session;
+        try {
+            session = objectMapper.readValue(json, UploadSession.class);
+        } catch (JsonProcessingException e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (!session.getUserId().equals(userId))
+            throw new CloudStorageException("Upload not found!", HttpStatus.NOT_FOUND);
+        return session;
+    }
+
+    private static UploadSession newSession(Integer userId, String path, String filename, long size, String contentType,
+                                            boolean direct) {
+        return UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .path(path)
+                .filename(filename)
+                .contentType(contentType == null || contentType.isBlank() ? DEFAULT_CONTENT_TYPE : contentType)
+                .direct(direct)
+                .size(size)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private void save(UploadSession session) {
+        try {
+            redisTemplate.opsForValue().set(SESSION_KEY.formatted(session.getId()), objectMapper.writeValueAsString(session),
+                    chunkedUploadProperties.getTtl());
+        } catch (JsonProcessingException e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static int partNumberOf(UploadSession session, Item part) {
+        return Integer.parseInt(part.objectName().substring(PARTS_PATH.formatted(session.getId()).length()));
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<Item> parts) {
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getPath(),
+                session.getFilename(),
+                session.getSize(),
+                parts.stream().map(part -> partNumberOf(session, part)).toList(),
+                parts.stream().mapToLong(Item::size).sum(),
+                chunkedUploadProperties.getMinPartSize().toBytes(),
+                session.getCreatedAt()
+        );
+    }
+}
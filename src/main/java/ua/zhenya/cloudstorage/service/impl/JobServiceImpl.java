@@ -0,0 +1,440 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.zhenya.cloudstorage.dto.*;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.metrics.StorageMetrics;
+import ua.zhenya.cloudstorage.model.Job;
+import ua.zhenya.cloudstorage.properties.DeleteProperties;
+import ua.zhenya.cloudstorage.properties.JobProperties;
+import ua.zhenya.cloudstorage.service.JobService;
+import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ProgressListener;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ua.zhenya.cloudstorage.utils.PathUtils.getResourceName;
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
+/**
+ * Runs storage operations in the background. Every job is sized by its worker, so submitting one costs a single Redis
+ * write regardless of how much it touches. While a job is queued or running, the node that owns it renews its
+ * heartbeat; a job whose heartbeat lapses for longer than {@code storage.jobs.lease-timeout} lost its node and is
+ * marked as failed instead of being reported as in progress until it expires. Archives of jobs that expired without
+ * being deleted are removed by a periodic sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobServiceImpl implements JobService {
+    private static final String JOB_KEY = "cloud-storage:jobs:%s";
+    private static final String JOB_KEY_PATTERN = "cloud-storage:jobs:*";
+    private static final String JOB_RESULT_PREFIX = "jobs/";
+    private static final String JOB_RESULT_PATH = JOB_RESULT_PREFIX + "%s.zip";
+    private static final int ARCHIVE_PIPE_BUFFER_SIZE = 1024 * 1024;
+
+    private final ResourceService resourceService;
+    private final MinioService minioService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final JobProperties jobProperties;
+    private final DeleteProperties deleteProperties;
+    private final StorageMetrics storageMetrics;
+    private final ExecutorService uploadExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("job-upload-", 0).factory());
+    private final Map<String, JobProgressTracker> activeJobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor jobExecutor;
+
+    @PostConstruct
+    void init() {
+        int concurrency = Math.max(1, jobProperties.getConcurrency());
+        jobExecutor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(jobProperties.getQueueCapacity()),
+                Thread.ofVirtual().name("storage-job-", 0).factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+        uploadExecutor.shutdownNow();
+    }
+
+    @Override
+    public JobResponse submitMove(Integer userId, String from, String to) {
+        Job job = createJob(userId, JobType.MOVE, from, to);
+        return submit(job, progressListener -> resourceService.moveResource(userId, from, to, progressListener));
+    }
+
+    @Override
+    public JobResponse submitDelete(Integer userId, String path) {
+        Job job = createJob(userId, JobType.DELETE, path, null);
+        return submit(job, progressListener -> resourceService.deleteResource(userId, path, progressListener));
+    }
+
+    @Override
+    public JobResponse submitArchive(Integer userId, String path) {
+        if (!isDirectory(path))
+            throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.BAD_REQUEST);
+
+        Job job = createJob(userId, JobType.ARCHIVE, path, null);
+        return submit(job, progressListener -> writeArchive(job, progressListener));
+    }
+
+    @Override
+    public JobResponse getJob(Integer userId, String jobId) {
+        return toResponse(findJob(userId, jobId));
+    }
+
+    @Override
+    public ResourceDownloadResponse downloadJobResult(Integer userId, String jobId) {
+        Job job = findJob(userId, jobId);
+        if (job.getType() != JobType.ARCHIVE || job.getStatus() != JobStatus.COMPLETED)
+            throw new CloudStorageException("Job has no result to download!", HttpStatus.CONFLICT);
+
+        try {
+            InputStream resultInputStream = minioService.getObject(JOB_RESULT_PATH.formatted(job.getId()));
+            StreamingResponseBody content = outputStream -> {
+                try (resultInputStream) {
+                    resultInputStream.transferTo(outputStream);
+                }
+            };
+            return new ResourceDownloadResponse(getResourceName(job.getPath()) + ".zip", storageMetrics.countDownload(content));
+        } catch (Exception e) {
+            throw new CloudStorageException("Error while downloading job result!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Override
+    public void deleteJob(Integer userId, String jobId) {
+        Job job = findJob(userId, jobId);
+        if (job.getStatus() == JobStatus.PENDING || job.getStatus() == JobStatus.RUNNING)
+            throw new CloudStorageException("Job is still in progress!", HttpStatus.CONFLICT);
+
+        try {
+            if (job.getType() == JobType.ARCHIVE)
+                minioService.deleteObject(JOB_RESULT_PATH.formatted(job.getId()));
+        } catch (Exception e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        redisTemplate.delete(JOB_KEY.formatted(job.getId()));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@jobProperties.heartbeatInterval.toMillis()}")
+    public void renewLeases() {
+        for (JobProgressTracker tracker : activeJobs.values()) {
+            try {
+                tracker.heartbeat();
+            } catch (Exception e) {
+                log.warn("Failed to renew lease of job {}", tracker.job.getId(), e);
+            }
+        }
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "#{@jobProperties.leaseTimeout.toMillis()}",
+            fixedDelayString = "#{@jobProperties.leaseTimeout.toMillis()}")
+    public void recoverStaleJobs() {
+        Instant expiredBefore = Instant.now().minus(jobProperties.getLeaseTimeout());
+        int recovered = 0;
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions().match(JOB_KEY_PATTERN).build())) {
+            while (keys.hasNext()) {
+                String json = redisTemplate.opsForValue().get(keys.next());
+                if (json == null)
+                    continue;
+
+                Job job = objectMapper.readValue(json, Job.class);
+                if (job.getStatus() != JobStatus.PENDING && job.getStatus() != JobStatus.RUNNING || activeJobs.containsKey(job.getId()))
+                    continue;
+
+                Instant heartbeatAt = job.getHeartbeatAt() != null ? job.getHeartbeatAt() : job.getCreatedAt();
+                if (heartbeatAt.isAfter(expiredBefore))
+                    continue;
+
+                log.warn("Job {} ({}) for user ID: {} stopped renewing its lease, marking it as failed", job.getId(),
+                        job.getType(), job.getUserId());
+                job.setStatus(JobStatus.FAILED);
+                job.setError("Job was interrupted, try again!");
+                job.setFinishedAt(Instant.now());
+                save(job);
+                recovered++;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to recover stale jobs", e);
+        }
+        if (recovered > 0)
+            log.info("Marked {} stale job(s) as failed", recovered);
+    }
+
+    /**
+     * Removes archives whose job is gone, which happens when a job expires before its result is deleted.
+     */
+    @Override
+    @Scheduled(initialDelayString = "#{@jobProperties.sweepInterval.toMillis()}",
+            fixedDelayString = "#{@jobProperties.sweepInterval.toMillis()}")
+    public void sweepExpiredResults() {
+        int batchSize = deleteProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        long removed = 0;
+        try {
+            for (Result<Item> result : minioService.listObjects(JOB_RESULT_PREFIX, true)) {
+                String objectName = result.get().objectName();
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(JOB_KEY.formatted(jobIdOf(objectName)))))
+                    continue;
+
+                batch.add(objectName);
+                if (batch.size() == batchSize) {
+                    removed += deleteExpired(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                removed += deleteExpired(batch);
+        } catch (Exception e) {
+            log.warn("Failed to sweep expired job results", e);
+        }
+        if (removed > 0)
+            log.info("Removed {} result(s) of expired jobs", removed);
+    }
+
+    private long deleteExpired(List<String> objectNames) throws Exception {
+        long failed = 0;
+        for (Result<DeleteError> result : minioService.deleteObjects(objectNames)) {
+            DeleteError error = result.get();
+            log.warn("Failed to delete job result '{}': {} ({})", error.objectName(), error.message(), error.code());
+            failed++;
+        }
+        return objectNames.size() - failed;
+    }
+
+    private static String jobIdOf(String objectName) {
+        String fileName = objectName.substring(JOB_RESULT_PREFIX.length());
+        return fileName.endsWith(".zip") ? fileName.substring(0, fileName.length() - ".zip".length()) : fileName;
+    }
+
+    private Job createJob(Integer userId, JobType type, String path, String targetPath) {
+        Instant now = Instant.now();
+        return Job.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .type(type)
+                .status(JobStatus.PENDING)
+                .path(path)
+                .targetPath(targetPath)
+                .createdAt(now)
+                .heartbeatAt(now)
+                .build();
+    }
+
+    private JobResponse submit(Job job, JobTask task) {
+        JobProgressTracker tracker = new JobProgressTracker(job);
+        save(job);
+        JobResponse response = toResponse(job);
+        activeJobs.put(job.getId(), tracker);
+        try {
+            jobExecutor.execute(() -> run(tracker, task));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.getId());
+            redisTemplate.delete(JOB_KEY.formatted(job.getId()));
+            throw new CloudStorageException("Too many operations in progress, try again later!", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return response;
+    }
+
+    private void run(JobProgressTracker tracker, JobTask task) {
+        Job job = tracker.job;
+        JobStatus status;
+        String error = null;
+        try {
+            tracker.start();
+            tracker.size(resourceService.summarizeResource(job.getUserId(), job.getPath()));
+            task.run(tracker);
+            status = JobStatus.COMPLETED;
+        } catch (Exception e) {
+            log.error("Job {} ({}) for user ID: {} failed", job.getId(), job.getType(), job.getUserId(), e);
+            status = JobStatus.FAILED;
+            error = e instanceof CloudStorageException ? e.getMessage() : "Something went wrong!";
+        }
+        try {
+            tracker.finish(status, error);
+        } finally {
+            activeJobs.remove(job.getId());
+        }
+    }
+
+    /**
+     * Writes the directory archive into a pipe that is uploaded to the job result object concurrently,
+     * so the archive is never held in memory or on local disk.
+     */
+    private void writeArchive(Job job, ProgressListener progressListener) throws Exception {
+        ResourceDownloadResponse archive = resourceService.downloadResource(job.getUserId(), job.getPath(), progressListener);
+        String resultPath = JOB_RESULT_PATH.formatted(job.getId());
+
+        PipedInputStream inputStream = new PipedInputStream(ARCHIVE_PIPE_BUFFER_SIZE);
+        PipedOutputStream outputStream = new PipedOutputStream(inputStream);
+        Future<?> upload = uploadExecutor.submit(() -> {
+            try (inputStream) {
+                minioService.uploadObject(resultPath, inputStream, -1, "application/zip");
+            }
+            return null;
+        });
+
+        try {
+            storageMetrics.countJobRead(archive.getContent()).writeTo(outputStream);
+        } catch (Exception e) {
+            upload.cancel(true);
+            throw e;
+        }
+        outputStream.close();
+        upload.get();
+    }
+
+    private Job findJob(Integer userId, String jobId) {
+        String json = redisTemplate.opsForValue().get(JOB_KEY.formatted(jobId));
+        if (json == null)
+            throw new CloudStorageException("Job not found!", HttpStatus.NOT_FOUND);
+
+        Job job;
+        try {
+            job = objectMapper.readValue(json, Job.class);
+        } catch (JsonProcessingException e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        if (!job.getUserId().equals(userId))
+            throw new CloudStorageException("Job not found!", HttpStatus.NOT_FOUND);
+        return job;
+    }
+
+    private void save(Job job) {
+        try {
+            redisTemplate.opsForValue().set(JOB_KEY.formatted(job.getId()), objectMapper.writeValueAsString(job), jobProperties.getTtl());
+        } catch (JsonProcessingException e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private JobResponse toResponse(Job job) {
+        return new JobResponse(
+                job.getId(),
+                job.getType(),
+                job.getStatus(),
+                job.getPath(),
+                job.getTargetPath(),
+                job.getObjectsProcessed(),
+                job.getTotalObjects(),
+                job.getBytesProcessed(),
+                job.getTotalBytes(),
+                estimateRemainingSeconds(job),
+                job.getError(),
+                job.getCreatedAt(),
+                job.getFinishedAt()
+        );
+    }
+
+    private Long estimateRemainingSeconds(Job job) {
+        if (job.getStatus() != JobStatus.RUNNING || job.getStartedAt() == null)
+            return null;
+
+        double progress;
+        if (job.getTotalBytes() > 0)
+            progress = (double) job.getBytesProcessed() / job.getTotalBytes();
+        else if (job.getTotalObjects() > 0)
+            progress = (double) job.getObjectsProcessed() / job.getTotalObjects();
+        else
+            return null;
+
+        if (progress <= 0)
+            return null;
+
+        long elapsedMillis = Duration.between(job.getStartedAt(), Instant.now()).toMillis();
+        return Math.max(0, Math.round(elapsedMillis * (1 - progress) / progress / 1000));
+    }
+
+    @FunctionalInterface
+    private interface JobTask {
+        void run(ProgressListener progressListener) throws Exception;
+    }
+
+    /**
+     * Accumulates progress reported from worker threads and writes it to Redis at most once per
+     * {@code storage.jobs.progress-interval}. Every write also renews the job's heartbeat.
+     */
+    private class JobProgressTracker implements ProgressListener {
+        private final Job job;
+        private final AtomicLong objectsProcessed = new AtomicLong();
+        private final AtomicLong bytesProcessed = new AtomicLong();
+        private final AtomicLong lastFlush = new AtomicLong(System.nanoTime());
+        private final long flushIntervalNanos = jobProperties.getProgressInterval().toNanos();
+
+        JobProgressTracker(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onProgress(long objects, long bytes) {
+            objectsProcessed.addAndGet(objects);
+            bytesProcessed.addAndGet(bytes);
+
+            long now = System.nanoTime();
+            long last = lastFlush.get();
+            if (now - last >= flushIntervalNanos && lastFlush.compareAndSet(last, now))
+                flush();
+        }
+
+        synchronized void start() {
+            job.setStatus(JobStatus.RUNNING);
+            job.setStartedAt(Instant.now());
+            flush();
+        }
+
+        synchronized void size(ResourceSummary summary) {
+            job.setTotalObjects(summary.getObjectCount());
+            job.setTotalBytes(summary.getTotalSize());
+            flush();
+        }
+
+        synchronized void heartbeat() {
+            flush();
+        }
+
+        synchronized void finish(JobStatus status, String error) {
+            job.setStatus(status);
+            job.setError(error);
+            job.setFinishedAt(Instant.now());
+            flush();
+        }
+
+        private synchronized void flush() {
+            job.setObjectsProcessed(objectsProcessed.get());
+            job.setBytesProcessed(bytesProcessed.get());
+            job.setHeartbeatAt(Instant.now());
+            save(job);
+        }
+    }
+}
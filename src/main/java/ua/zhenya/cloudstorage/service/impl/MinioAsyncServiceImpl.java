@@ -0,0 +1,63 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import ua.zhenya.cloudstorage.properties.MinioProperties;
+import ua.zhenya.cloudstorage.service.MinioAsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@RequiredArgsConstructor
+public class MinioAsyncServiceImpl implements MinioAsyncService {
+    private final MinioAsyncClient minioAsyncClient;
+    private final MinioProperties minioProperties;
+
+    @Override
+    public CompletableFuture<GetObjectResponse> getObject(String fullPath) {
+        return call(() -> minioAsyncClient.getObject(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(fullPath)
+                .build()));
+    }
+
+    /**
+     * Reads {@code length} bytes starting at {@code offset}, or everything from {@code offset} when {@code length}
+     * is {@code null}.
+     */
+    @Override
+    public CompletableFuture<GetObjectResponse> getObject(String fullPath, long offset, Long length) {
+        return call(() -> minioAsyncClient.getObject(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(fullPath)
+                .offset(offset)
+                .length(length)
+                .build()));
+    }
+
+    @Override
+    public CompletableFuture<StatObjectResponse> getObjectInfo(String path) {
+        return call(() -> minioAsyncClient.statObject(StatObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(path)
+                .build()));
+    }
+
+    /**
+     * The async client still throws checked exceptions while building a request; they are reported through the
+     * returned future like any failure from storage.
+     */
+    private static <T> CompletableFuture<T> call(AsyncCall<T> call) {
+        try {
+            return call.start();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        CompletableFuture<T> start() throws Exception;
+    }
+}
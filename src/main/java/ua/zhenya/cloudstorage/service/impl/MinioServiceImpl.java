@@ -1,13 +1,22 @@
 package ua.zhenya.cloudstorage.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.minio.*;
 import io.minio.errors.*;
+import io.minio.http.Method;
 import io.minio.messages.DeleteError;
 import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.properties.ExistenceCacheProperties;
 import ua.zhenya.cloudstorage.properties.MinioProperties;
 import ua.zhenya.cloudstorage.service.MinioService;
 
@@ -16,15 +25,34 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class MinioServiceImpl implements MinioService {
+    private static final long UNKNOWN_SIZE_PART_SIZE = 10L * 1024 * 1024;
+    private static final Set<String> NOT_FOUND_ERROR_CODES = Set.of("NoSuchKey", "NoSuchObject");
+
     private final MinioClient minioClient;
     private final MinioProperties minioProperties;
+    private final ExistenceCacheProperties existenceCacheProperties;
+    private final MeterRegistry meterRegistry;
+    private Cache<String, Boolean> existenceCache;
 
     @PostConstruct
     public void init() throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        existenceCache = Caffeine.newBuilder()
+                .maximumSize(existenceCacheProperties.getMaximumSize())
+                .expireAfterWrite(existenceCacheProperties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, existenceCache, "object-existence");
         createBucket();
     }
 
@@ -35,6 +63,7 @@ public class MinioServiceImpl implements MinioService {
                 .object(fullPath)
                 .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
                 .build());
+        existenceCache.invalidate(fullPath);
     }
 
     public GetObjectResponse getObject(String fullPath) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
@@ -44,27 +73,76 @@ public class MinioServiceImpl implements MinioService {
                 .build());
     }
 
+    /**
+     * Reads {@code length} bytes starting at {@code offset}, or everything from {@code offset} when {@code length}
+     * is {@code null}.
+     */
+    public GetObjectResponse getObject(String fullPath, long offset, Long length) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        return minioClient.getObject(GetObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(fullPath)
+                .offset(offset)
+                .length(length)
+                .build());
+    }
+
     public void deleteObject(String fullPath) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
         minioClient.removeObject(RemoveObjectArgs.builder()
                 .bucket(minioProperties.getBucketName())
                 .object(fullPath)
                 .build());
+        existenceCache.invalidate(fullPath);
     }
 
-    public Iterable<Result<DeleteError>> deleteObjects(Iterable<DeleteObject> objects) {
-        return minioClient.removeObjects(RemoveObjectsArgs.builder()
+    /**
+     * Removes the objects eagerly (the client defers the request until its results are iterated) so the existence
+     * cache is invalidated only after the keys are actually gone.
+     */
+    public List<Result<DeleteError>> deleteObjects(List<String> objectNames) {
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder()
                 .bucket(minioProperties.getBucketName())
-                .objects(objects)
+                .objects(objectNames.stream().map(DeleteObject::new).toList())
                 .build());
+
+        List<Result<DeleteError>> errors = new ArrayList<>();
+        results.forEach(errors::add);
+        existenceCache.invalidateAll(objectNames);
+        return errors;
     }
 
     public ObjectWriteResponse uploadObject(String path, InputStream inputStream, long size, String contentType) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
-        return minioClient.putObject(PutObjectArgs.builder()
+        return uploadObject(path, inputStream, size, contentType, Map.of());
+    }
+
+    public ObjectWriteResponse uploadObject(String path, InputStream inputStream, long size, String contentType, Map<String, String> userMetadata) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        ObjectWriteResponse response = minioClient.putObject(PutObjectArgs.builder()
                 .bucket(minioProperties.getBucketName())
                 .object(path)
-                .stream(inputStream, size, -1)
+                .stream(inputStream, size, size < 0 ? UNKNOWN_SIZE_PART_SIZE : -1)
                 .contentType(contentType)
+                .userMetadata(userMetadata)
+                .build());
+        existenceCache.invalidate(path);
+        return response;
+    }
+
+    /**
+     * Concatenates the source objects server-side into the target object, in the given order.
+     */
+    public ObjectWriteResponse composeObject(String targetPath, List<String> sourcePaths, String contentType) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        ObjectWriteResponse response = minioClient.composeObject(ComposeObjectArgs.builder()
+                .bucket(minioProperties.getBucketName())
+                .object(targetPath)
+                .sources(sourcePaths.stream()
+                        .map(sourcePath -> ComposeSource.builder()
+                                .bucket(minioProperties.getBucketName())
+                                .object(sourcePath)
+                                .build())
+                        .toList())
+                .headers(Map.of("Content-Type", contentType))
                 .build());
+        existenceCache.invalidate(targetPath);
+        return response;
     }
 
     public StatObjectResponse getObjectInfo(String path) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
@@ -91,6 +169,7 @@ public class MinioServiceImpl implements MinioService {
                 .bucket(minioProperties.getBucketName())
                 .object(targetObjectPath)
                 .build());
+        existenceCache.invalidate(targetObjectPath);
     }
 
     public void moveObject(String sourceObjectPath, String targetObjectPath) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
@@ -98,16 +177,68 @@ public class MinioServiceImpl implements MinioService {
         deleteObject(sourceObjectPath);
     }
 
+    /**
+     * Signs a URL that grants {@code method} on this single object until {@code expiry} elapses. Signing is local;
+     * no request is sent to storage.
+     */
+    @Override
+    public String getPresignedObjectUrl(String path, Method method, Duration expiry, Map<String, String> queryParams) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        return minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                .method(method)
+                .bucket(minioProperties.getBucketName())
+                .object(path)
+                .expiry((int) expiry.toSeconds())
+                .extraQueryParams(queryParams)
+                .build());
+    }
+
+    /**
+     * Signs a POST policy that only allows uploading a file of at most {@code maxSize} bytes to exactly this key.
+     * Storage rejects any form field the policy does not list, so the uploader can set neither user metadata nor any
+     * other object attribute. The returned fields, including {@code key}, have to be sent as form fields before the
+     * file itself.
+     */
+    @Override
+    public Map<String, String> getPresignedPostFormData(String path, Duration expiry, long maxSize) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
+        PostPolicy policy = new PostPolicy(minioProperties.getBucketName(), ZonedDateTime.now().plus(expiry));
+        policy.addEqualsCondition("key", path);
+        policy.addContentLengthRangeCondition(0, maxSize);
+
+        Map<String, String> formData = new LinkedHashMap<>();
+        formData.put("key", path);
+        formData.putAll(minioClient.getPresignedPostFormData(policy));
+        return formData;
+    }
+
+    @Override
+    public String getBucketUrl() {
+        return UriComponentsBuilder.fromHttpUrl(minioProperties.getEndpoint())
+                .pathSegment(minioProperties.getBucketName())
+                .toUriString();
+    }
+
+    /**
+     * Answers from a short-lived cache that our own writes invalidate. Only a definite "no such key" answer is treated
+     * (and cached) as absence; any other failure is reported as unavailable storage and never cached.
+     */
     @Override
     public boolean objectExists(String path) {
+        return existenceCache.get(path, this::statObjectExists);
+    }
+
+    private boolean statObjectExists(String path) {
         try {
             minioClient.statObject(StatObjectArgs.builder()
                     .bucket(minioProperties.getBucketName())
                     .object(path)
                     .build());
             return true;
+        } catch (ErrorResponseException e) {
+            if (NOT_FOUND_ERROR_CODES.contains(e.errorResponse().code()))
+                return false;
+            throw new CloudStorageException("Storage is unavailable, try again later!", HttpStatus.SERVICE_UNAVAILABLE);
         } catch (Exception e) {
-            return false;
+            throw new CloudStorageException("Storage is unavailable, try again later!", HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -0,0 +1,241 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.DeleteError;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.model.User;
+import ua.zhenya.cloudstorage.properties.DeleteProperties;
+import ua.zhenya.cloudstorage.properties.ObjectKeyProperties;
+import ua.zhenya.cloudstorage.repository.ResourceMetadataRepository;
+import ua.zhenya.cloudstorage.repository.UserRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ObjectKeyMigrationService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static ua.zhenya.cloudstorage.utils.Constants.OBJECT_KEY_PATH;
+import static ua.zhenya.cloudstorage.utils.Constants.OBJECT_KEY_PREFIX;
+import static ua.zhenya.cloudstorage.utils.Constants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
+/**
+ * Moves files that are still stored at their path to object keys, so they can be renamed and moved without touching
+ * storage. Each file is copied to a new key, its index row is switched over, and only then is the old object removed;
+ * a deduplicated file adopts the blob its pointer names instead of being copied. Files left behind by a failure keep
+ * working from their path and are picked up by the next run. With {@code storage.object-keys.enabled}, the directory
+ * markers of a migrated user are removed as well, since directories then live in the index alone.
+ * <p>
+ * Objects under {@code objects/} that no index row refers to, left behind when a change failed halfway or a removal
+ * after commit did not go through, are removed by a periodic sweep once they are older than the grace period.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ObjectKeyMigrationServiceImpl implements ObjectKeyMigrationService {
+    private final ResourceIndexService resourceIndexService;
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final MinioService minioService;
+    private final BlobService blobService;
+    private final UserRepository userRepository;
+    private final ObjectKeyProperties objectKeyProperties;
+    private final DeleteProperties deleteProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void migrateAllUsers() {
+        int batchSize = objectKeyProperties.getMigrationBatchSize();
+        Page<User> users;
+        int page = 0;
+        do {
+            users = userRepository.findAll(PageRequest.of(page++, batchSize, Sort.by("id")));
+            for (User user : users) {
+                try {
+                    migrateUser(user.getId());
+                } catch (Exception e) {
+                    log.error("Failed to migrate storage of user ID: {} to object keys", user.getId(), e);
+                }
+            }
+        } while (users.hasNext());
+    }
+
+    @Override
+    public void migrateUser(Integer userId) {
+        if (!resourceIndexService.isIndexed(userId))
+            resourceIndexService.reindexUser(userId);
+
+        int batchSize = objectKeyProperties.getMigrationBatchSize();
+        long migrated = 0;
+        long failed = 0;
+        long afterId = 0;
+        List<ResourceMetadata> files;
+        do {
+            files = resourceIndexService.listUnkeyedFiles(userId, afterId, batchSize);
+            for (ResourceMetadata file : files) {
+                try {
+                    if (migrateFile(userId, file))
+                        migrated++;
+                } catch (Exception e) {
+                    log.warn("Failed to migrate file '{}' to an object key", file.getAbsolutePath(), e);
+                    failed++;
+                }
+            }
+            if (!files.isEmpty())
+                afterId = files.getLast().getId();
+        } while (files.size() == batchSize);
+
+        if (objectKeyProperties.isEnabled() && failed == 0)
+            removeDirectoryMarkers(userId);
+        log.info("Migrated {} file(s) of user ID: {} to object keys, {} failed", migrated, userId, failed);
+    }
+
+    /**
+     * Copies the file to a new key, then switches its row over under the user lock, provided the file has not been
+     * moved, deleted or replaced since it was listed. The old object is removed only once the switch has committed;
+     * a copy that did not make it into the index is removed again.
+     */
+    private boolean migrateFile(Integer userId, ResourceMetadata file) throws Exception {
+        String absolutePath = file.getAbsolutePath();
+        Optional<BlobPointer> pointer = blobService.findPointer(absolutePath);
+        String objectKey;
+        if (pointer.isPresent()) {
+            objectKey = pointer.get().blobPath();
+        } else {
+            objectKey = OBJECT_KEY_PATH.formatted(UUID.randomUUID());
+            minioService.copyObject(absolutePath, objectKey);
+        }
+
+        Boolean migrated;
+        try {
+            migrated = transactionTemplate.execute(status -> {
+                resourceIndexService.lockUser(userId);
+                boolean unchanged = resourceIndexService.findResource(userId, absolutePath)
+                        .filter(current -> current.getId().equals(file.getId()) && current.getObjectKey() == null)
+                        .isPresent();
+                if (!unchanged || !resourceIndexService.assignObjectKey(file.getId(), objectKey))
+                    return false;
+                if (pointer.isPresent())
+                    blobService.detachPointer(absolutePath);
+                return true;
+            });
+        } catch (RuntimeException e) {
+            if (pointer.isEmpty())
+                deleteQuietly(objectKey);
+            throw e;
+        }
+
+        if (!Boolean.TRUE.equals(migrated)) {
+            if (pointer.isEmpty())
+                deleteQuietly(objectKey);
+            return false;
+        }
+        deleteQuietly(absolutePath);
+        return true;
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "#{@objectKeyProperties.orphanSweepInterval.toMillis()}",
+            fixedDelayString = "#{@objectKeyProperties.orphanSweepInterval.toMillis()}")
+    public void sweepOrphanedObjects() {
+        Instant cutoff = Instant.now().minus(objectKeyProperties.getOrphanGracePeriod());
+        int batchSize = deleteProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        long removed = 0;
+        try {
+            for (Result<Item> result : minioService.listObjects(OBJECT_KEY_PREFIX, true)) {
+                Item item = result.get();
+                if (item.lastModified().toInstant().isAfter(cutoff))
+                    continue;
+
+                batch.add(item.objectName());
+                if (batch.size() == batchSize) {
+                    removed += deleteOrphans(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                removed += deleteOrphans(batch);
+        } catch (Exception e) {
+            log.warn("Failed to sweep orphaned objects", e);
+        }
+        if (removed > 0)
+            log.info("Removed {} orphaned object(s)", removed);
+    }
+
+    /**
+     * Removes the objects of {@code objectKeys} that no index row refers to.
+     */
+    private long deleteOrphans(List<String> objectKeys) throws Exception {
+        Set<String> referenced = new HashSet<>(resourceMetadataRepository.findExistingObjectKeys(objectKeys));
+        List<String> orphans = objectKeys.stream().filter(objectKey -> !referenced.contains(objectKey)).toList();
+        if (orphans.isEmpty())
+            return 0;
+
+        long failed = 0;
+        for (Result<DeleteError> result : minioService.deleteObjects(orphans)) {
+            DeleteError error = result.get();
+            log.warn("Failed to delete object '{}': {} ({})", error.objectName(), error.message(), error.code());
+            failed++;
+        }
+        return orphans.size() - failed;
+    }
+
+    private void deleteQuietly(String objectName) {
+        try {
+            minioService.deleteObject(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to delete object '{}'", objectName, e);
+        }
+    }
+
+    /**
+     * Removes every directory marker below the user root. The root marker is kept, as it is what a rebuild of the
+     * index starts from.
+     */
+    private void removeDirectoryMarkers(Integer userId) {
+        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
+        int batchSize = deleteProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            for (Result<Item> result : minioService.listObjects(userDirectoryPath, true)) {
+                String objectName = result.get().objectName();
+                if (!isDirectory(objectName) || objectName.equals(userDirectoryPath))
+                    continue;
+
+                batch.add(objectName);
+                if (batch.size() == batchSize) {
+                    deleteMarkers(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty())
+                deleteMarkers(batch);
+        } catch (Exception e) {
+            log.warn("Failed to remove directory markers of user ID: {}", userId, e);
+        }
+    }
+
+    private void deleteMarkers(List<String> batch) throws Exception {
+        for (Result<DeleteError> result : minioService.deleteObjects(batch)) {
+            DeleteError error = result.get();
+            log.warn("Failed to delete object '{}': {} ({})", error.objectName(), error.message(), error.code());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.model.User;
+import ua.zhenya.cloudstorage.properties.QuotaProperties;
+import ua.zhenya.cloudstorage.repository.UserRepository;
+import ua.zhenya.cloudstorage.service.QuotaService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static ua.zhenya.cloudstorage.utils.Constants.USER_DIRECTORY_PATH;
+
+/**
+ * Admits uploads against the user's quota in a single Redis round trip. The user's usage and limit are cached in a
+ * hash loaded from the index root entry and the {@code users} row, and bytes of uploads in progress are held in a
+ * separate reservation counter. A reservation is settled when the surrounding transaction completes: on commit its
+ * bytes move from the reservation to the cached usage, otherwise they are simply released. The reservation counter
+ * expires after {@code storage.quota.reservation-ttl} without new reservations, so bytes held by a crashed instance
+ * do not block the user forever.
+ * <p>
+ * Uploads that span several requests, such as chunked uploads, take a hold instead: the bytes stay counted under the
+ * hold's id until it is released or its own expiry passes, which every admission checks, so an abandoned upload gives
+ * its bytes back without any cleanup.
+ */
+@Service
+@RequiredArgsConstructor
+public class QuotaServiceImpl implements QuotaService {
+    private static final String USAGE_KEY = "cloud-storage:quota:%d:usage";
+    private static final String RESERVED_KEY = "cloud-storage:quota:%d:reserved";
+    private static final String HOLDS_KEY = "cloud-storage:quota:%d:holds";
+    private static final long USAGE_NOT_CACHED = -1;
+    private static final long ADMITTED = 1;
+    private static final String AVAILABLE_FUNCTION = """
+            local function availableBytes(now, ownHoldId)
+                local used = redis.call('HGET', KEYS[1], 'used')
+                local limit = redis.call('HGET', KEYS[1], 'limit')
+                if not used or not limit then
+                    return nil
+                end
+                local held = 0
+                local holds = redis.call('HGETALL', KEYS[3])
+                for i = 1, #holds, 2 do
+                    local bytes, expiresAt = string.match(holds[i + 1], '^(%d+):(%d+)$')
+                    if tonumber(expiresAt) <= now then
+                        redis.call('HDEL', KEYS[3], holds[i])
+                    elseif holds[i] ~= ownHoldId then
+                        held = held + tonumber(bytes)
+                    end
+                end
+                local reserved = tonumber(redis.call('GET', KEYS[2]) or '0')
+                return tonumber(limit) - tonumber(used) - reserved - held
+            end
+            """;
+    private static final RedisScript<Long> ADMIT_SCRIPT = RedisScript.of(AVAILABLE_FUNCTION + """
+            local available = availableBytes(tonumber(ARGV[4]), '')
+            if not available then
+                return -1
+            end
+            if tonumber(ARGV[1]) > available then
+                return 0
+            end
+            if ARGV[2] == '1' then
+                redis.call('INCRBY', KEYS[2], ARGV[1])
+                redis.call('PEXPIRE', KEYS[2], ARGV[3])
+            end
+            return 1
+            """, Long.class);
+    private static final RedisScript<Long> HOLD_SCRIPT = RedisScript.of(AVAILABLE_FUNCTION + """
+            local available = availableBytes(tonumber(ARGV[4]), ARGV[2])
+            if not available then
+                return -1
+            end
+            if tonumber(ARGV[1]) > available then
+                return 0
+            end
+            redis.call('HSET', KEYS[3], ARGV[2], ARGV[1] .. ':' .. ARGV[3])
+            if redis.call('PTTL', KEYS[3]) < tonumber(ARGV[5]) then
+                redis.call('PEXPIRE', KEYS[3], ARGV[5])
+            end
+            return 1
+            """, Long.class);
+    private static final RedisScript<Long> AVAILABLE_SCRIPT = RedisScript.of(AVAILABLE_FUNCTION + """
+            local available = availableBytes(tonumber(ARGV[1]), '')
+            if not available then
+                return -1
+            end
+            return math.max(available, 0)
+            """, Long.class);
+    private static final RedisScript<Long> RENEW_SCRIPT = RedisScript.of("""
+            local hold = redis.call('HGET', KEYS[1], ARGV[1])
+            if not hold then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], string.match(hold, '^(%d+):') .. ':' .. ARGV[2])
+            if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[3]) then
+                redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return 1
+            """, Long.class);
+    private static final RedisScript<Long> SETTLE_SCRIPT = RedisScript.of("""
+            if redis.call('DECRBY', KEYS[2], ARGV[1]) <= 0 then
+                redis.call('DEL', KEYS[2])
+            end
+            if ARGV[2] == '1' and redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('HINCRBY', KEYS[1], 'used', ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ResourceIndexService resourceIndexService;
+    private final UserRepository userRepository;
+    private final QuotaProperties quotaProperties;
+
+    /**
+     * Rejects a transfer of {@code bytes} that cannot fit in the remaining quota without reserving anything.
+     */
+    @Override
+    public void checkAvailable(Integer userId, long bytes) {
+        if (quotaProperties.isEnabled())
+            admit(userId, bytes, false);
+    }
+
+    /**
+     * Returns the bytes the user can still store, counting reservations and holds, or {@link Long#MAX_VALUE} when
+     * quotas are disabled.
+     */
+    @Override
+    public long getAvailable(Integer userId) {
+        if (!quotaProperties.isEnabled())
+            return Long.MAX_VALUE;
+
+        String now = String.valueOf(System.currentTimeMillis());
+        Long available = redisTemplate.execute(AVAILABLE_SCRIPT, keys(userId), now);
+        if (available != null && available == USAGE_NOT_CACHED) {
+            loadUsage(userId);
+            available = redisTemplate.execute(AVAILABLE_SCRIPT, keys(userId), now);
+        }
+        if (available == null || available == USAGE_NOT_CACHED)
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        return available;
+    }
+
+    /**
+     * Reserves {@code bytes} of the user's quota until the current transaction completes, or rejects the upload if
+     * they do not fit.
+     */
+    @Override
+    public void reserve(Integer userId, long bytes) {
+        if (!quotaProperties.isEnabled() || bytes <= 0)
+            return;
+
+        admit(userId, bytes, true);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            settle(userId, bytes, true);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settle(userId, bytes, status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Holds {@code bytes} of the user's quota under {@code holdId} for {@code ttl}, or rejects the upload if they do
+     * not fit. Holding again under the same id replaces the previous hold.
+     */
+    @Override
+    public void hold(Integer userId, String holdId, long bytes, Duration ttl) {
+        if (!quotaProperties.isEnabled())
+            return;
+
+        long now = System.currentTimeMillis();
+        String[] args = {String.valueOf(bytes), holdId, String.valueOf(now + ttl.toMillis()), String.valueOf(now),
+                String.valueOf(ttl.toMillis())};
+        Long result = redisTemplate.execute(HOLD_SCRIPT, keys(userId), (Object[]) args);
+        if (result != null && result == USAGE_NOT_CACHED) {
+            loadUsage(userId);
+            result = redisTemplate.execute(HOLD_SCRIPT, keys(userId), (Object[]) args);
+        }
+        if (result == null || result != ADMITTED)
+            throw new CloudStorageException("Storage quota exceeded!", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /**
+     * Moves the expiry of an existing hold to {@code ttl} from now. A hold that has already expired is not revived.
+     */
+    @Override
+    public void renewHold(Integer userId, String holdId, Duration ttl) {
+        if (!quotaProperties.isEnabled())
+            return;
+
+        redisTemplate.execute(RENEW_SCRIPT, List.of(HOLDS_KEY.formatted(userId)), holdId,
+                String.valueOf(System.currentTimeMillis() + ttl.toMillis()), String.valueOf(ttl.toMillis()));
+    }
+
+    @Override
+    public void releaseHold(Integer userId, String holdId) {
+        if (quotaProperties.isEnabled())
+            redisTemplate.opsForHash().delete(HOLDS_KEY.formatted(userId), holdId);
+    }
+
+    /**
+     * Drops the cached usage once the current transaction completes, so it is reloaded from the index after files
+     * have been removed.
+     */
+    @Override
+    public void evictUsage(Integer userId) {
+        if (!quotaProperties.isEnabled())
+            return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            redisTemplate.delete(USAGE_KEY.formatted(userId));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                redisTemplate.delete(USAGE_KEY.formatted(userId));
+            }
+        });
+    }
+
+    private void admit(Integer userId, long bytes, boolean reserve) {
+        String[] args = {String.valueOf(bytes), reserve ? "1" : "0", String.valueOf(quotaProperties.getReservationTtl().toMillis()),
+                String.valueOf(System.currentTimeMillis())};
+
+        Long result = redisTemplate.execute(ADMIT_SCRIPT, keys(userId), (Object[]) args);
+        if (result != null && result == USAGE_NOT_CACHED) {
+            loadUsage(userId);
+            result = redisTemplate.execute(ADMIT_SCRIPT, keys(userId), (Object[]) args);
+        }
+        if (result == null || result != ADMITTED)
+            throw new CloudStorageException("Storage quota exceeded!", HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    private void settle(Integer userId, long bytes, boolean committed) {
+        redisTemplate.execute(SETTLE_SCRIPT, keys(userId), String.valueOf(bytes), committed ? "1" : "0");
+    }
+
+    private static List<String> keys(Integer userId) {
+        return List.of(USAGE_KEY.formatted(userId), RESERVED_KEY.formatted(userId), HOLDS_KEY.formatted(userId));
+    }
+
+    private void loadUsage(Integer userId) {
+        if (!resourceIndexService.isIndexed(userId))
+            resourceIndexService.reindexUser(userId);
+
+        long used = resourceIndexService.findResource(userId, USER_DIRECTORY_PATH.formatted(userId))
+                .map(ResourceMetadata::getTotalSize)
+                .orElse(0L);
+        long limit = userRepository.findById(userId)
+                .map(User::getStorageQuota)
+                .orElse(quotaProperties.getDefaultLimit().toBytes());
+
+        String key = USAGE_KEY.formatted(userId);
+        redisTemplate.opsForHash().putAll(key, Map.of("used", String.valueOf(used), "limit", String.valueOf(limit)));
+        redisTemplate.expire(key, quotaProperties.getUsageCacheTtl());
+    }
+}
@@ -0,0 +1,401 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.zhenya.cloudstorage.dto.ResourceSummary;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.properties.ObjectKeyProperties;
+import ua.zhenya.cloudstorage.repository.ResourceMetadataRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+
+import java.time.Duration;
+import java.util.*;
+
+import static ua.zhenya.cloudstorage.utils.Constants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.PathUtils.getResourceType;
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
+/**
+ * Keeps the {@code resources} table in step with the bucket. A user whose root directory row is missing is treated as
+ * not indexed and is rebuilt from a full listing on first access, which also repairs the index after a failed
+ * storage operation left it behind the bucket. Files stored under object keys and directories without marker objects
+ * exist only in the index, so once a user has any of them the rebuild keeps them and only re-reads the files that are
+ * stored at their path.
+ * <p>
+ * Every directory row counts the bytes and files below it. Changes made within a transaction are collected per
+ * directory and applied just before it commits, deepest directories first, so concurrent transactions always lock
+ * shared ancestors in the same order. Indexing, moving and removing take the user's lock before reading the entries
+ * the changes are computed from, so two transactions never derive their deltas from the same, soon outdated, rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+@Slf4j
+public class ResourceIndexServiceImpl implements ResourceIndexService {
+    private static final int REINDEX_BATCH_SIZE = 500;
+    private static final Sort LISTING_ORDER = Sort.by("name", "type");
+    private static final Object USAGE_DELTAS_KEY = new Object();
+    private static final Comparator<UsageKey> USAGE_UPDATE_ORDER = Comparator
+            .comparing(UsageKey::userId)
+            .thenComparing((UsageKey key) -> key.directoryPath().length(), Comparator.reverseOrder())
+            .thenComparing(UsageKey::directoryPath);
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final MinioService minioService;
+    private final BlobService blobService;
+    private final ObjectKeyProperties objectKeyProperties;
+
+    @Override
+    public boolean isIndexed(Integer userId) {
+        return resourceExists(userId, USER_DIRECTORY_PATH.formatted(userId));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void reindexUser(Integer userId) {
+        resourceMetadataRepository.lockUserIndex(userId);
+        if (isIndexed(userId))
+            return;
+
+        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
+        boolean merge = objectKeyProperties.isEnabled() || resourceMetadataRepository.existsByUserIdAndObjectKeyIsNotNull(userId);
+        log.info("Rebuilding resource index for user ID: {}", userId);
+        if (merge)
+            resourceMetadataRepository.deleteUnkeyedFiles(userId);
+        else
+            resourceMetadataRepository.deleteAllByUserId(userId);
+
+        Set<String> directories = new LinkedHashSet<>();
+        directories.add(userDirectoryPath);
+        List<ResourceMetadata> batch = new ArrayList<>(REINDEX_BATCH_SIZE);
+        try {
+            for (Result<Item> result : minioService.listObjects(userDirectoryPath, true)) {
+                Item item = result.get();
+                String objectName = item.objectName();
+
+                for (String parentPath = parentOf(objectName); parentPath.length() > userDirectoryPath.length(); parentPath = parentOf(parentPath))
+                    directories.add(parentPath);
+
+                if (isDirectory(objectName)) {
+                    directories.add(objectName);
+                    continue;
+                }
+
+                long size = item.size();
+                String etag = item.etag().replace("\"", "");
+                if (size == 0) {
+                    Optional<BlobPointer> pointer = blobService.findPointer(objectName);
+                    if (pointer.isPresent()) {
+                        size = pointer.get().size();
+                        etag = pointer.get().contentHash();
+                    }
+                }
+
+                if (merge) {
+                    resourceMetadataRepository.insertFileIfAbsent(userId, parentOf(objectName), nameOf(objectName), size, etag);
+                    continue;
+                }
+                batch.add(newEntry(userId, objectName, size, etag));
+                if (batch.size() == REINDEX_BATCH_SIZE) {
+                    resourceMetadataRepository.saveAll(batch);
+                    batch.clear();
+                }
+            }
+        } catch (Exception e) {
+            throw new CloudStorageException("Failed to index user storage!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        for (String directory : directories) {
+            if (merge) {
+                resourceMetadataRepository.insertDirectoryIfAbsent(userId, parentOf(directory), nameOf(directory));
+                continue;
+            }
+            batch.add(newEntry(userId, directory, null, null));
+            if (batch.size() == REINDEX_BATCH_SIZE) {
+                resourceMetadataRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        resourceMetadataRepository.saveAll(batch);
+        resourceMetadataRepository.flush();
+        resourceMetadataRepository.recomputeUsage(userId);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void markStale(Integer userId) {
+        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
+        log.warn("Resource index for user ID: {} is out of sync with storage and will be rebuilt", userId);
+        resourceMetadataRepository.deleteEntry(userId, parentOf(userDirectoryPath), nameOf(userDirectoryPath), ResourceType.DIRECTORY.name());
+    }
+
+    /**
+     * Serializes structural changes of the user's storage with each other and with index rebuilds until the surrounding
+     * transaction ends. A rebuild takes the same lock in a transaction of its own, so the user must already be indexed.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockUser(Integer userId) {
+        resourceMetadataRepository.lockUserIndex(userId);
+    }
+
+    @Override
+    public Optional<ResourceMetadata> findResource(Integer userId, String absolutePath) {
+        return resourceMetadataRepository.findByUserIdAndParentPathAndNameAndType(
+                userId, parentOf(absolutePath), nameOf(absolutePath), getResourceType(absolutePath));
+    }
+
+    @Override
+    public boolean resourceExists(Integer userId, String absolutePath) {
+        return resourceMetadataRepository.existsByUserIdAndParentPathAndNameAndType(
+                userId, parentOf(absolutePath), nameOf(absolutePath), getResourceType(absolutePath));
+    }
+
+    @Override
+    public List<ResourceMetadata> listDirectory(Integer userId, String absolutePath) {
+        return resourceMetadataRepository.findAllByUserIdAndParentPath(userId, absolutePath, LISTING_ORDER);
+    }
+
+    /**
+     * Returns up to {@code limit} entries of the directory that follow the given {@code (name, type)} position in
+     * {@code direction} order, seeking on the {@code (user_id, parent_path, name, type)} index instead of skipping rows.
+     */
+    @Override
+    public List<ResourceMetadata> listDirectoryPage(Integer userId, String absolutePath, String afterName, ResourceType afterType,
+                                                    Sort.Direction direction, int limit) {
+        if (afterName == null)
+            return resourceMetadataRepository.findAllByUserIdAndParentPath(userId, absolutePath,
+                    PageRequest.of(0, limit, Sort.by(direction, "name", "type")));
+
+        return direction.isAscending()
+                ? resourceMetadataRepository.findPageAfter(userId, absolutePath, afterName, afterType.name(), limit)
+                : resourceMetadataRepository.findPageBefore(userId, absolutePath, afterName, afterType.name(), limit);
+    }
+
+    @Override
+    public List<ResourceMetadata> searchResources(Integer userId, String query, int page, int limit) {
+        return resourceMetadataRepository.searchByName(userId, "%" + escapeLike(query) + "%", PageRequest.of(page, limit));
+    }
+
+    @Override
+    public List<ResourceMetadata> searchResourcesAfter(Integer userId, String query, String afterName, ResourceType afterType, Long afterId,
+                                                       int limit) {
+        String pattern = "%" + escapeLike(query) + "%";
+        if (afterName == null)
+            return resourceMetadataRepository.searchByName(userId, pattern, PageRequest.of(0, limit));
+
+        return resourceMetadataRepository.searchByNameAfter(userId, pattern, afterName, afterType.name(), afterId, limit);
+    }
+
+    @Override
+    public ResourceSummary summarizeResource(Integer userId, String absolutePath) {
+        ResourceMetadata resource = findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+        if (resource.getType() == ResourceType.FILE)
+            return new ResourceSummary(1, resource.getSize());
+
+        Object[] row = resourceMetadataRepository.summarizeDescendants(userId, escapeLike(absolutePath) + "%").getFirst();
+        return new ResourceSummary(((Number) row[0]).longValue() + 1, ((Number) row[1]).longValue());
+    }
+
+    @Override
+    @Transactional
+    public void indexFile(Integer userId, String absolutePath, long size, String etag) {
+        indexFile(userId, absolutePath, size, etag, null);
+    }
+
+    @Override
+    @Transactional
+    public void indexFile(Integer userId, String absolutePath, long size, String etag, String objectKey) {
+        resourceMetadataRepository.lockUserIndex(userId);
+        Optional<ResourceMetadata> existing = findResource(userId, absolutePath);
+        resourceMetadataRepository.upsertFile(userId, parentOf(absolutePath), nameOf(absolutePath), size, etag, objectKey);
+        indexParentDirectories(userId, absolutePath);
+        adjustUsage(userId, absolutePath, size - existing.map(ResourceMetadata::getSize).orElse(0L), existing.isPresent() ? 0 : 1);
+    }
+
+    @Override
+    @Transactional
+    public void indexDirectory(Integer userId, String absolutePath) {
+        if (resourceMetadataRepository.insertDirectoryIfAbsent(userId, parentOf(absolutePath), nameOf(absolutePath)) > 0)
+            indexParentDirectories(userId, absolutePath);
+    }
+
+    @Override
+    @Transactional
+    public void moveResource(Integer userId, String absoluteFromPath, String absoluteToPath) {
+        resourceMetadataRepository.lockUserIndex(userId);
+        findResource(userId, absoluteFromPath).ifPresent(source -> {
+            adjustUsage(userId, absoluteFromPath, -usedBytes(source), -usedFiles(source));
+            adjustUsage(userId, absoluteToPath, usedBytes(source), usedFiles(source));
+        });
+        if (isDirectory(absoluteFromPath))
+            resourceMetadataRepository.moveDescendants(userId, absoluteFromPath, escapeLike(absoluteFromPath) + "%", absoluteToPath);
+
+        resourceMetadataRepository.moveEntry(userId, parentOf(absoluteFromPath), nameOf(absoluteFromPath),
+                getResourceType(absoluteFromPath).name(), parentOf(absoluteToPath), nameOf(absoluteToPath));
+        indexParentDirectories(userId, absoluteToPath);
+    }
+
+    @Override
+    @Transactional
+    public void removeResource(Integer userId, String absolutePath) {
+        resourceMetadataRepository.lockUserIndex(userId);
+        findResource(userId, absolutePath)
+                .ifPresent(resource -> adjustUsage(userId, absolutePath, -usedBytes(resource), -usedFiles(resource)));
+        if (isDirectory(absolutePath))
+            resourceMetadataRepository.deleteDescendants(userId, escapeLike(absolutePath) + "%");
+
+        resourceMetadataRepository.deleteEntry(userId, parentOf(absolutePath), nameOf(absolutePath), getResourceType(absolutePath).name());
+    }
+
+    /**
+     * Returns up to {@code limit} files stored under object keys below the directory {@code absolutePath}, in id
+     * order after {@code afterId}.
+     */
+    @Override
+    public List<ResourceMetadata> listKeyedFiles(Integer userId, String absolutePath, long afterId, int limit) {
+        return resourceMetadataRepository.findKeyedFilesAfter(userId, escapeLike(absolutePath) + "%", afterId, limit);
+    }
+
+    @Override
+    public List<ResourceMetadata> listUnkeyedFiles(Integer userId, long afterId, int limit) {
+        return resourceMetadataRepository.findUnkeyedFilesAfter(userId, afterId, limit);
+    }
+
+    @Override
+    @Transactional
+    public boolean assignObjectKey(Long id, String objectKey) {
+        return resourceMetadataRepository.assignObjectKey(id, objectKey) > 0;
+    }
+
+    /**
+     * Counts the files stored at their path that were last changed at least {@code minAge} ago.
+     */
+    @Override
+    public ResourceSummary summarizeUnkeyedFiles(Integer userId, Duration minAge) {
+        Object[] row = resourceMetadataRepository.summarizeUnkeyedFiles(userId, minAge.toSeconds()).getFirst();
+        return new ResourceSummary(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+    }
+
+    @Override
+    @Transactional
+    public void recomputeUsage(Integer userId) {
+        resourceMetadataRepository.recomputeUsage(userId);
+    }
+
+    /**
+     * Records a change of {@code bytes} and {@code files} for every directory above {@code absolutePath}, up to and
+     * including the user root, to be applied when the current transaction commits.
+     */
+    private void adjustUsage(Integer userId, String absolutePath, long bytes, long files) {
+        if (bytes == 0 && files == 0)
+            return;
+
+        Map<UsageKey, long[]> deltas = pendingUsageDeltas();
+        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
+        for (String parentPath = parentOf(absolutePath); parentPath.length() >= userDirectoryPath.length(); parentPath = parentOf(parentPath)) {
+            long[] delta = deltas.computeIfAbsent(new UsageKey(userId, parentPath), key -> new long[2]);
+            delta[0] += bytes;
+            delta[1] += files;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<UsageKey, long[]> pendingUsageDeltas() {
+        Map<UsageKey, long[]> deltas = (Map<UsageKey, long[]>) TransactionSynchronizationManager.getResource(USAGE_DELTAS_KEY);
+        if (deltas != null)
+            return deltas;
+
+        Map<UsageKey, long[]> newDeltas = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(USAGE_DELTAS_KEY, newDeltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                applyUsageDeltas(newDeltas);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(USAGE_DELTAS_KEY);
+            }
+        });
+        return newDeltas;
+    }
+
+    private void applyUsageDeltas(Map<UsageKey, long[]> deltas) {
+        deltas.entrySet().stream()
+                .filter(delta -> delta.getValue()[0] != 0 || delta.getValue()[1] != 0)
+                .sorted(Map.Entry.comparingByKey(USAGE_UPDATE_ORDER))
+                .forEach(delta -> resourceMetadataRepository.adjustUsage(delta.getKey().userId(), parentOf(delta.getKey().directoryPath()),
+                        nameOf(delta.getKey().directoryPath()), delta.getValue()[0], delta.getValue()[1]));
+        deltas.clear();
+    }
+
+    private static long usedBytes(ResourceMetadata resource) {
+        return resource.getType() == ResourceType.FILE ? resource.getSize() : resource.getTotalSize();
+    }
+
+    private static long usedFiles(ResourceMetadata resource) {
+        return resource.getType() == ResourceType.FILE ? 1 : resource.getFileCount();
+    }
+
+    /**
+     * Inserts the missing directories between {@code absolutePath} and the user root, deepest first. Every indexed
+     * entry has its ancestors indexed, so the walk stops at the first directory that is already present.
+     */
+    private void indexParentDirectories(Integer userId, String absolutePath) {
+        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
+        for (String parentPath = parentOf(absolutePath); parentPath.length() > userDirectoryPath.length(); parentPath = parentOf(parentPath)) {
+            if (resourceMetadataRepository.insertDirectoryIfAbsent(userId, parentOf(parentPath), nameOf(parentPath)) == 0)
+                return;
+        }
+    }
+
+    private static ResourceMetadata newEntry(Integer userId, String absolutePath, Long size, String etag) {
+        return ResourceMetadata.builder()
+                .userId(userId)
+                .parentPath(parentOf(absolutePath))
+                .name(nameOf(absolutePath))
+                .type(getResourceType(absolutePath))
+                .size(size)
+                .etag(etag)
+                .build();
+    }
+
+    private static String parentOf(String absolutePath) {
+        String path = trimTrailingSlash(absolutePath);
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    private static String nameOf(String absolutePath) {
+        String path = trimTrailingSlash(absolutePath);
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String trimTrailingSlash(String absolutePath) {
+        return isDirectory(absolutePath) ? absolutePath.substring(0, absolutePath.length() - 1) : absolutePath;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private record UsageKey(Integer userId, String directoryPath) {
+    }
+}
@@ -1,44 +1,112 @@
 package ua.zhenya.cloudstorage.service.impl;
 
+import io.minio.ObjectWriteResponse;
 import io.minio.Result;
 import io.minio.StatObjectResponse;
-import io.minio.errors.*;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
 import io.minio.messages.Item;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.zhenya.cloudstorage.dto.PresignedUrlResponse;
 import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceFileInfo;
+import ua.zhenya.cloudstorage.dto.ResourcePageResponse;
 import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.ResourceSummary;
 import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.dto.StorageUsageResponse;
+import ua.zhenya.cloudstorage.dto.UploadFailure;
+import ua.zhenya.cloudstorage.dto.UploadResultResponse;
 import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.metrics.StorageMetrics;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.properties.DeleteProperties;
+import ua.zhenya.cloudstorage.properties.DownloadProperties;
+import ua.zhenya.cloudstorage.properties.ListingProperties;
+import ua.zhenya.cloudstorage.properties.MoveProperties;
+import ua.zhenya.cloudstorage.properties.ObjectKeyProperties;
+import ua.zhenya.cloudstorage.properties.PresignedUrlProperties;
+import ua.zhenya.cloudstorage.properties.SearchProperties;
+import ua.zhenya.cloudstorage.properties.UploadProperties;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.MinioAsyncService;
 import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ProgressListener;
+import ua.zhenya.cloudstorage.service.QuotaService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
 import ua.zhenya.cloudstorage.service.ResourceService;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import static ua.zhenya.cloudstorage.utils.Constants.*;
 import static ua.zhenya.cloudstorage.utils.PathUtils.*;
 
+/**
+ * Read methods do not open a transaction of their own: a user whose index has to be rebuilt first would otherwise
+ * hold a pooled connection for the read while the rebuild runs on a second one. Each index read runs in a short
+ * transaction of its own instead, and methods that change storage declare their transactions explicitly.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
+@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
 @Slf4j
 public class ResourceServiceImpl implements ResourceService {
     private final MinioService minioService;
+    private final MinioAsyncService minioAsyncService;
+    private final BlobService blobService;
+    private final ResourceIndexService resourceIndexService;
+    private final QuotaService quotaService;
+    private final UploadProperties uploadProperties;
+    private final DownloadProperties downloadProperties;
+    private final DeleteProperties deleteProperties;
+    private final MoveProperties moveProperties;
+    private final SearchProperties searchProperties;
+    private final ListingProperties listingProperties;
+    private final PresignedUrlProperties presignedUrlProperties;
+    private final ObjectKeyProperties objectKeyProperties;
+    private final CacheManager cacheManager;
+    private final StorageMetrics storageMetrics;
+    private final ExecutorService storageExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("storage-", 0).factory());
+
+    @PreDestroy
+    void shutdown() {
+        storageExecutor.shutdownNow();
+    }
 
     @Override
     @Transactional
@@ -49,29 +117,58 @@ public class ResourceServiceImpl implements ResourceService {
         } catch (Exception e) {
             throw new CloudStorageException("Failed to create user directory!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        resourceIndexService.reindexUser(id);
     }
 
+    /**
+     * Multipart bodies are resolved lazily, so the files are still being received while they are stored; the method
+     * therefore runs outside any transaction and each file is indexed in a short transaction of its own. A file that
+     * fails does not affect the others: its stored content is removed again and it is reported in the result.
+     */
     @Override
-    @Transactional
-    public List<ResourceResponse> uploadResources(Integer userId, String path, List<MultipartFile> files) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UploadResultResponse uploadResources(Integer userId, String path, List<MultipartFile> files) {
         if (!isDirectory(path) && !path.isEmpty())
             throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.NOT_FOUND);
 
+        ensureIndexed(userId);
         String fullRelativePath = buildPath(userId, path);
-        if (!minioService.objectExists(fullRelativePath))
+        if (!resourceIndexService.resourceExists(userId, fullRelativePath))
             throw new CloudStorageException("Target directory not found!", HttpStatus.NOT_FOUND);
 
-        List<ResourceResponse> uploadedResources = new ArrayList<>();
-
+        List<String> filePaths = new ArrayList<>(files.size());
         for (MultipartFile file : files) {
             String originalFilename = file.getOriginalFilename();
             String fileAbsolutePath = fullRelativePath + originalFilename;
-            if (minioService.objectExists(fileAbsolutePath))
+            if (filePaths.contains(fileAbsolutePath) || resourceIndexService.resourceExists(userId, fileAbsolutePath))
                 throw new CloudStorageException("Resource already exists: " + originalFilename, HttpStatus.CONFLICT);
+            filePaths.add(fileAbsolutePath);
+        }
+        Set<String> changedListings = new HashSet<>();
+        for (String filePath : filePaths)
+            changedListings.addAll(listingsChangedByAdding(userId, filePath));
+        quotaService.reserve(userId, files.stream().mapToLong(MultipartFile::getSize).sum());
 
+        try {
+            Set<String> ensuredDirectories = new HashSet<>();
+            for (String filePath : filePaths)
+                ensureParentDirectories(filePath, ensuredDirectories);
+        } catch (Exception e) {
+            markIndexStale(userId);
+            throw new CloudStorageException("Error uploading file(s)!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        List<Future<StoredContent>> uploads = uploadConcurrently(files, filePaths);
+        List<ResourceResponse> uploadedResources = new ArrayList<>(files.size());
+        List<UploadFailure> failedFiles = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String fileAbsolutePath = filePaths.get(i);
+            StoredContent stored = null;
             try {
-                createIntermediateDirectoriesIfNeeded(fileAbsolutePath);
-                minioService.uploadObject(fileAbsolutePath, file.getInputStream(), file.getSize(), file.getContentType());
+                stored = uploads.get(i).get();
+                resourceIndexService.indexFile(userId, fileAbsolutePath, file.getSize(), stored.etag(), stored.objectKey());
+                storageMetrics.recordUpload(file.getSize());
                 uploadedResources.add(new ResourceResponse(
                         getResponsePath(fileAbsolutePath),
                         getResourceName(fileAbsolutePath),
@@ -79,31 +176,212 @@ public class ResourceServiceImpl implements ResourceService {
                         ResourceType.FILE
                 ));
             } catch (Exception e) {
-                throw new CloudStorageException("Error uploading file(s)!", HttpStatus.INTERNAL_SERVER_ERROR);
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                log.warn("Failed to upload file '{}' for user ID: {}", fileAbsolutePath, userId, cause);
+                if (stored != null)
+                    discardStoredContent(fileAbsolutePath, stored);
+                failedFiles.add(new UploadFailure(
+                        getResponsePath(fileAbsolutePath),
+                        getResourceName(fileAbsolutePath),
+                        cause instanceof CloudStorageException ? cause.getMessage() : "Error uploading file!"
+                ));
+            }
+        }
+        evictListings(changedListings);
+
+        if (!failedFiles.isEmpty())
+            quotaService.evictUsage(userId);
+        return new UploadResultResponse(uploadedResources, failedFiles);
+    }
+
+    /**
+     * Starts every upload at once on the storage executor, with at most {@code storage.upload.concurrency} of them
+     * transferring at a time, so a batch takes about as long as its slowest files rather than the sum of all of them.
+     */
+    private List<Future<StoredContent>> uploadConcurrently(List<MultipartFile> files, List<String> filePaths) {
+        Semaphore permits = new Semaphore(Math.max(1, uploadProperties.getConcurrency()));
+        List<Future<StoredContent>> uploads = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String filePath = filePaths.get(i);
+            uploads.add(storageExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return storeFileContent(filePath, file, file.getSize(), file.getContentType());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        return uploads;
+    }
+
+    /**
+     * Stores the content of a new file at {@code filePath}, or under a fresh object key with
+     * {@code storage.object-keys.enabled}. With {@code storage.dedup.enabled}, the content is shared with identical
+     * files and its hash is used as the etag; a keyed file then references the blob directly instead of a pointer.
+     */
+    private StoredContent storeFileContent(String filePath, InputStreamSource source, long size, String contentType) throws Exception {
+        if (blobService.isEnabled()) {
+            if (usesObjectKeys()) {
+                BlobPointer pointer = blobService.storeContent(source, size, contentType);
+                return new StoredContent(pointer.blobPath(), pointer.contentHash(), pointer.contentHash(), size);
             }
+            String contentHash = blobService.storeFile(filePath, source, size, contentType).contentHash();
+            return new StoredContent(null, contentHash, contentHash, size);
+        }
+
+        try (InputStream inputStream = source.getInputStream()) {
+            return streamFileContent(filePath, inputStream, size, contentType);
         }
-        return uploadedResources;
     }
 
+    /**
+     * Stores content that can be read only once the same way as {@link #storeFileContent}. When {@code size} is
+     * unknown, the stored size is read back from storage.
+     */
+    private StoredContent streamFileContent(String filePath, InputStream inputStream, long size, String contentType) throws Exception {
+        if (blobService.isEnabled()) {
+            BlobPointer pointer = usesObjectKeys()
+                    ? blobService.storeContent(inputStream, size, contentType)
+                    : blobService.storeFile(filePath, inputStream, size, contentType);
+            return new StoredContent(usesObjectKeys() ? pointer.blobPath() : null, pointer.contentHash(), pointer.contentHash(),
+                    pointer.size());
+        }
+
+        String objectKey = newObjectKey();
+        String contentPath = objectKey == null ? filePath : objectKey;
+        String etag = minioService.uploadObject(contentPath, inputStream, size, contentType).etag();
+        try {
+            return new StoredContent(objectKey, etag, null, size >= 0 ? size : minioService.getObjectInfo(contentPath).size());
+        } catch (Exception e) {
+            deleteObjectQuietly(contentPath);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes content stored for a file that could not be indexed, releasing the blob it references if it was
+     * deduplicated. Content that cannot be removed is left to the usage reconciliation, which detects files stored at
+     * their path that are missing from the index.
+     */
+    private void discardStoredContent(String filePath, StoredContent stored) {
+        if (stored.objectKey() == null || !stored.objectKey().startsWith(BlobService.BLOB_PREFIX))
+            deleteObjectQuietly(stored.objectKey() == null ? filePath : stored.objectKey());
+        try {
+            if (stored.contentHash() != null)
+                blobService.releaseReferences(List.of(stored.contentHash()));
+        } catch (Exception e) {
+            log.warn("Failed to release the stored content of file '{}'", filePath, e);
+        }
+    }
+
+    /**
+     * Streams the content straight to storage without spooling it to local disk first. When the length is not known
+     * up front, the stored size is read back from storage after the upload and the file is removed again if it does
+     * not fit in the quota. The transfer is paced by the client, so it runs outside any transaction and only the index
+     * update at the end takes a database connection.
+     */
     @Override
-    public ResourceResponse getResourceInfo(Integer userId, String path) {
-        String absolutePath = buildPath(userId, path);
-        if (!minioService.objectExists(absolutePath))
-            throw new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResourceResponse uploadResource(Integer userId, String path, String filename, InputStream inputStream, long size,
+                                           String contentType) {
+        String fileAbsolutePath = resolveUploadTarget(userId, path, filename);
+        List<String> changedListings = listingsChangedByAdding(userId, fileAbsolutePath);
+        quotaService.reserve(userId, size);
+        StoredContent stored = null;
+        try {
+            ensureParentDirectories(fileAbsolutePath, new HashSet<>());
+            stored = streamFileContent(fileAbsolutePath, inputStream, size, contentType);
+            if (size < 0)
+                quotaService.reserve(userId, stored.size());
+            resourceIndexService.indexFile(userId, fileAbsolutePath, stored.size(), stored.etag(), stored.objectKey());
+        } catch (Exception e) {
+            if (stored != null)
+                discardStoredContent(fileAbsolutePath, stored);
+            if (e instanceof CloudStorageException cloudStorageException)
+                throw cloudStorageException;
+            log.warn("Failed to upload file '{}' for user ID: {}", fileAbsolutePath, userId, e);
+            markIndexStale(userId);
+            throw new CloudStorageException("Error uploading file!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        evictListings(changedListings);
+        storageMetrics.recordUpload(stored.size());
+        return new ResourceResponse(
+                getResponsePath(fileAbsolutePath),
+                getResourceName(fileAbsolutePath),
+                stored.size(),
+                ResourceType.FILE
+        );
+    }
 
-        ResourceType resourceType = getResourceType(absolutePath);
-        ResourceResponse resourceResponse;
+    @Override
+    public void checkUploadTarget(Integer userId, String path, String filename) {
+        resolveUploadTarget(userId, path, filename);
+    }
+
+    @Override
+    @Transactional
+    public ResourceResponse composeUploadedFile(Integer userId, String path, String filename, List<String> partObjectNames,
+                                                long size, String contentType) {
+        String fileAbsolutePath = resolveUploadTarget(userId, path, filename);
+        List<String> changedListings = listingsChangedByAdding(userId, fileAbsolutePath);
+        String objectKey = newObjectKey();
+        quotaService.reserve(userId, size);
+        String contentPath = objectKey == null ? fileAbsolutePath : objectKey;
         try {
-            StatObjectResponse objectInfo = minioService.getObjectInfo(absolutePath);
-            resourceResponse = new ResourceResponse(
-                    getResponsePath(absolutePath),
-                    getResourceName(absolutePath),
-                    resourceType == ResourceType.FILE ? objectInfo.size() : null,
-                    resourceType);
+            ensureParentDirectories(fileAbsolutePath, new HashSet<>());
+            ObjectWriteResponse composed = minioService.composeObject(contentPath, partObjectNames, contentType);
+            afterRollback(() -> deleteObjectQuietly(contentPath));
+            resourceIndexService.indexFile(userId, fileAbsolutePath, size, composed.etag(), objectKey);
         } catch (Exception e) {
-            throw new CloudStorageException("Error on getting resource info!", HttpStatus.INTERNAL_SERVER_ERROR);
+            log.warn("Failed to assemble uploaded file '{}' for user ID: {}", fileAbsolutePath, userId, e);
+            markIndexStale(userId);
+            throw new CloudStorageException("Error uploading file!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return resourceResponse;
+        evictListings(changedListings);
+        storageMetrics.recordUpload(size);
+        return new ResourceResponse(
+                getResponsePath(fileAbsolutePath),
+                getResourceName(fileAbsolutePath),
+                size,
+                ResourceType.FILE
+        );
+    }
+
+    /**
+     * Checks that a file named {@code filename} can be uploaded to the directory {@code path}: the directory must
+     * exist and must not already contain a resource of that name. Returns the absolute path of the file.
+     */
+    private String resolveUploadTarget(Integer userId, String path, String filename) {
+        if (!isDirectory(path) && !path.isEmpty())
+            throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.BAD_REQUEST);
+        if (filename == null || filename.isBlank() || filename.startsWith("/") || filename.endsWith("/"))
+            throw new CloudStorageException("Invalid file name!", HttpStatus.BAD_REQUEST);
+
+        ensureIndexed(userId);
+        String fullRelativePath = buildPath(userId, path);
+        if (!resourceIndexService.resourceExists(userId, fullRelativePath))
+            throw new CloudStorageException("Target directory not found!", HttpStatus.NOT_FOUND);
+
+        String fileAbsolutePath = fullRelativePath + filename;
+        if (resourceIndexService.resourceExists(userId, fileAbsolutePath))
+            throw new CloudStorageException("Resource already exists: " + filename, HttpStatus.CONFLICT);
+        return fileAbsolutePath;
+    }
+
+    @Override
+    public ResourceResponse getResourceInfo(Integer userId, String path) {
+        ensureIndexed(userId);
+        String absolutePath = buildPath(userId, path);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+
+        return new ResourceResponse(
+                getResponsePath(absolutePath),
+                getResourceName(absolutePath),
+                resource.getSize(),
+                resource.getType());
     }
 
     @Override
@@ -112,17 +390,21 @@ public class ResourceServiceImpl implements ResourceService {
         if (!isDirectory(path))
             throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.BAD_REQUEST);
 
+        ensureIndexed(userId);
         String absolutePath = buildPath(userId, path);
-        if (minioService.objectExists(absolutePath))
+        if (resourceIndexService.resourceExists(userId, absolutePath))
             throw new CloudStorageException("Resource already exists!", HttpStatus.CONFLICT);
 
         String relativePath = getRelativePath(absolutePath);
-        if (!minioService.objectExists(relativePath))
+        if (!resourceIndexService.resourceExists(userId, relativePath))
             throw new CloudStorageException("Parent directory not found!", HttpStatus.NOT_FOUND);
 
         ResourceResponse resourceResponse;
         try {
-            minioService.createDirectory(absolutePath);
+            if (!usesObjectKeys())
+                minioService.createDirectory(absolutePath);
+            resourceIndexService.indexDirectory(userId, absolutePath);
+            evictParentListing(absolutePath);
             resourceResponse = new ResourceResponse(
                     getResponsePath(absolutePath),
                     getResourceName(absolutePath),
@@ -135,55 +417,82 @@ public class ResourceServiceImpl implements ResourceService {
         return resourceResponse;
     }
 
+    /**
+     * Listings are cached by absolute directory path; directories with more than
+     * {@code storage.listing.cache-max-entries} entries are not cached and should be read through the paginated or
+     * streaming listing instead. The cache is local to each node and only evicted on the node that made the change,
+     * so other nodes may serve a stale listing until the entry expires ({@code spring.cache.caffeine.spec}).
+     */
     @Override
+    @Cacheable(cacheNames = DIRECTORY_LISTING_CACHE, key = "T(ua.zhenya.cloudstorage.utils.PathUtils).buildPath(#userId, #path)",
+            unless = "#result.size() > @listingProperties.cacheMaxEntries")
     public List<ResourceResponse> getDirectoryContent(Integer userId, String path) {
-        if (!path.isEmpty() && !isDirectory(path))
-            throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.BAD_REQUEST);
+        String absolutePath = requireIndexedDirectory(userId, path);
+        return resourceIndexService.listDirectory(userId, absolutePath).stream()
+                .map(this::toDirectoryEntry)
+                .toList();
+    }
 
-        String absolutePath = buildPath(userId, path);
-        if (!minioService.objectExists(absolutePath))
-            throw new CloudStorageException("Directory not found!", HttpStatus.NOT_FOUND);
+    @Override
+    public Iterable<ResourceResponse> streamDirectoryContent(Integer userId, String path) {
+        String absolutePath = requireIndexedDirectory(userId, path);
+        int pageSize = listingProperties.getMaxLimit();
+        return () -> pages(pageSize, last -> resourceIndexService.listDirectoryPage(userId, absolutePath,
+                        last == null ? null : last.getName(), last == null ? null : last.getType(), Sort.Direction.ASC, pageSize))
+                .map(this::toDirectoryEntry)
+                .iterator();
+    }
 
-        List<ResourceResponse> resourceResponses = new ArrayList<>();
-        try {
-            Iterable<Result<Item>> results = minioService.listObjects(absolutePath, false);
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String objectName = item.objectName();
+    @Override
+    public ResourcePageResponse getDirectoryContentPage(Integer userId, String path, String continuationToken, Integer limit,
+                                                        Sort.Direction direction) {
+        int pageSize = limit == null
+                ? listingProperties.getDefaultLimit()
+                : Math.min(limit, listingProperties.getMaxLimit());
+        ResourceMetadata after = continuationToken == null ? null : decodeContinuationToken(continuationToken);
+        String absolutePath = requireIndexedDirectory(userId, path);
 
-                if (objectName.equals(absolutePath))
-                    continue;
+        List<ResourceMetadata> resources = resourceIndexService.listDirectoryPage(userId, absolutePath,
+                after == null ? null : after.getName(), after == null ? null : after.getType(), direction, pageSize + 1);
 
-                ResourceType resourceType = getResourceType(objectName);
-                ResourceResponse resourceResponse = new ResourceResponse(
-                        getResponsePath(objectName),
-                        isDirectory(objectName) ? getResourceName(objectName) + "/" : getResourceName(objectName),
-                        resourceType == ResourceType.FILE ? item.size() : null,
-                        resourceType
-                );
-                resourceResponses.add(resourceResponse);
-            }
-        } catch (Exception e) {
-            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        String nextToken = null;
+        if (resources.size() > pageSize) {
+            resources = resources.subList(0, pageSize);
+            nextToken = encodeContinuationToken(resources.getLast());
         }
-        return resourceResponses;
+        return new ResourcePageResponse(resources.stream().map(this::toDirectoryEntry).toList(), nextToken);
     }
 
     @Override
     public ResourceDownloadResponse downloadResource(Integer userId, String path) {
+        ResourceDownloadResponse download = downloadResource(userId, path, ProgressListener.NONE);
+        return new ResourceDownloadResponse(download.getFileName(), storageMetrics.countDownload(download.getContent()));
+    }
+
+    /**
+     * The content is not counted as a client download, since it is also read by background jobs; callers that send
+     * it to a client count it themselves.
+     */
+    @Override
+    public ResourceDownloadResponse downloadResource(Integer userId, String path, ProgressListener progressListener) {
+        ensureIndexed(userId);
         String absolutePath = buildPath(userId, path);
-        if (!minioService.objectExists(absolutePath))
-            throw new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
 
         try {
             String filename;
-            Resource content;
+            StreamingResponseBody content;
             if (isDirectory(absolutePath)) {
-                content = createZipArchive(absolutePath);
+                content = createZipArchive(userId, absolutePath, progressListener);
                 filename = getResourceName(absolutePath) + ".zip";
             } else {
-                InputStream fileInputStream = minioService.getObject(absolutePath);
-                content = new InputStreamResource(fileInputStream);
+                InputStream fileInputStream = minioService.getObject(resolveContentPath(resource));
+                content = outputStream -> {
+                    try (fileInputStream) {
+                        progressListener.onProgress(1, fileInputStream.transferTo(outputStream));
+                    }
+                };
                 filename = getResourceName(absolutePath);
             }
             return new ResourceDownloadResponse(filename, content);
@@ -192,149 +501,818 @@ public class ResourceServiceImpl implements ResourceService {
         }
     }
 
+    @Override
+    public ResourceFileInfo getFileInfo(Integer userId, String path) {
+        ensureIndexed(userId);
+        String absolutePath = buildPath(userId, path);
+        if (isDirectory(absolutePath))
+            throw new CloudStorageException("Invalid path: must be a file!", HttpStatus.BAD_REQUEST);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+
+        try {
+            if (resource.getObjectKey() != null) {
+                StatObjectResponse object = minioService.getObjectInfo(resource.getObjectKey());
+                return new ResourceFileInfo(
+                        resource.getName(),
+                        resource.getSize(),
+                        resource.getEtag(),
+                        object.lastModified().toInstant(),
+                        object.contentType());
+            }
+
+            StatObjectResponse object = minioService.getObjectInfo(absolutePath);
+            Optional<BlobPointer> pointer = blobService.findPointer(absolutePath);
+            return new ResourceFileInfo(
+                    getResourceName(absolutePath),
+                    pointer.map(BlobPointer::size).orElse(object.size()),
+                    pointer.map(BlobPointer::contentHash).orElse(object.etag()),
+                    object.lastModified().toInstant(),
+                    object.contentType());
+        } catch (Exception e) {
+            throw new CloudStorageException("Error while downloading resource!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Opens the stored bytes of a file checked beforehand with {@link #getFileInfo}, reading only the requested range.
+     */
+    @Override
+    public InputStream getFileContent(Integer userId, String path, long offset, Long length) {
+        ResourceMetadata resource = resourceIndexService.findResource(userId, buildPath(userId, path))
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+        try {
+            return storageMetrics.countDownload(minioService.getObject(resolveContentPath(resource), offset, length));
+        } catch (Exception e) {
+            throw new CloudStorageException("Error while downloading resource!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Opens a file on the async storage client, so no thread waits for storage to start answering. The body is then
+     * copied with blocking I/O, which holds a thread for as long as the transfer runs.
+     */
+    @Override
+    public CompletableFuture<ResourceDownloadResponse> downloadFileAsync(Integer userId, String path) {
+        ensureIndexed(userId);
+        String absolutePath = buildPath(userId, path);
+        if (isDirectory(absolutePath))
+            throw new CloudStorageException("Invalid path: must be a file!", HttpStatus.BAD_REQUEST);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+
+        String contentPath;
+        try {
+            contentPath = resolveContentPath(resource);
+        } catch (Exception e) {
+            throw new CloudStorageException("Error while downloading resource!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return minioAsyncService.getObject(contentPath).handle((fileInputStream, e) -> {
+            if (e != null)
+                throw new CloudStorageException("Error while downloading resource!", HttpStatus.INTERNAL_SERVER_ERROR);
+
+            StreamingResponseBody content = outputStream -> {
+                try (fileInputStream) {
+                    fileInputStream.transferTo(outputStream);
+                }
+            };
+            return new ResourceDownloadResponse(getResourceName(absolutePath), storageMetrics.countDownload(content));
+        });
+    }
+
+    @Override
+    public PresignedUrlResponse getDownloadUrl(Integer userId, String path) {
+        ensureIndexed(userId);
+        String absolutePath = buildPath(userId, path);
+        if (isDirectory(absolutePath))
+            throw new CloudStorageException("Invalid path: folders can only be downloaded as an archive!", HttpStatus.BAD_REQUEST);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+
+        String contentDisposition = ContentDisposition.attachment()
+                .filename(getResourceName(absolutePath), StandardCharsets.UTF_8)
+                .build()
+                .toString();
+        String contentPath;
+        try {
+            contentPath = resolveContentPath(resource);
+        } catch (Exception e) {
+            throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return presign(contentPath, Method.GET, Map.of("response-content-disposition", contentDisposition));
+    }
+
     @Override
     @Transactional
     public ResourceResponse moveResource(Integer userId, String from, String to) {
+        return moveResource(userId, from, to, ProgressListener.NONE);
+    }
+
+    /**
+     * Files stored under object keys are moved by updating their index rows alone; only files and directory markers
+     * still stored at their path are copied to the new location.
+     */
+    @Override
+    @Transactional
+    public ResourceResponse moveResource(Integer userId, String from, String to, ProgressListener progressListener) {
+        ensureIndexed(userId);
+        resourceIndexService.lockUser(userId);
         String absoluteFromPath = buildPath(userId, from);
-        if (!minioService.objectExists(absoluteFromPath))
-            throw new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND);
+        ResourceMetadata source = resourceIndexService.findResource(userId, absoluteFromPath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
 
         String absoluteToPath = buildPath(userId, to);
-        if (minioService.objectExists(absoluteToPath))
+        if (resourceIndexService.resourceExists(userId, absoluteToPath))
             throw new CloudStorageException("Resource already exists!", HttpStatus.CONFLICT);
 
         if (isDirectory(absoluteFromPath) && !isDirectory(absoluteToPath))
             throw new CloudStorageException("Invalid target path: must be a directory!", HttpStatus.BAD_REQUEST);
 
+        if (isDirectory(absoluteFromPath) && absoluteToPath.startsWith(absoluteFromPath))
+            throw new CloudStorageException("Invalid target path: cannot move a directory into itself!", HttpStatus.BAD_REQUEST);
+
+        List<String> changedListings = listingsChangedByAdding(userId, absoluteToPath);
+
         try {
-            if (isDirectory(to))
-                createEmptyObjectIfNotExist(absoluteToPath);
-
-            ResourceType actualResourceType = getResourceType(absoluteFromPath);
-            moveDirectoryRecursively(absoluteFromPath, absoluteToPath);
-            StatObjectResponse objectInfo = minioService.getObjectInfo(absoluteToPath);
-
-            return new ResourceResponse(
-                    getResponsePath(absoluteToPath),
-                    getResourceName(absoluteToPath),
-                    actualResourceType == ResourceType.FILE ? objectInfo.size() : null,
-                    actualResourceType
-            );
+            if (source.getType() == ResourceType.DIRECTORY) {
+                if (!usesObjectKeys())
+                    createEmptyObjectIfNotExist(absoluteToPath);
+                moveDirectoryRecursively(absoluteFromPath, absoluteToPath, progressListener);
+            } else {
+                if (source.getObjectKey() == null) {
+                    ensureParentDirectories(absoluteToPath, new HashSet<>());
+                    minioService.moveObject(absoluteFromPath, absoluteToPath);
+                    blobService.movePointers(List.of(absoluteFromPath), absoluteFromPath, absoluteToPath);
+                }
+                progressListener.onProgress(1, source.getSize());
+            }
+        } catch (CloudStorageException e) {
+            markIndexStale(userId);
+            throw e;
         } catch (Exception e) {
+            markIndexStale(userId);
             throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        resourceIndexService.moveResource(userId, absoluteFromPath, absoluteToPath);
+        if (source.getType() == ResourceType.DIRECTORY)
+            evictListingTree(absoluteFromPath);
+        evictParentListing(absoluteFromPath);
+        evictListings(changedListings);
+
+        return new ResourceResponse(
+                getResponsePath(absoluteToPath),
+                getResourceName(absoluteToPath),
+                source.getSize(),
+                source.getType()
+        );
     }
 
+    /**
+     * Returns every match, read from the index page by page.
+     */
     @Override
     public List<ResourceResponse> searchResources(Integer userId, String query) {
-        String userDirectoryPath = USER_DIRECTORY_PATH.formatted(userId);
-        List<ResourceResponse> resourceResponses = new ArrayList<>();
-        query = query.toLowerCase();
-        try {
-            Iterable<Result<Item>> results = minioService.listObjects(userDirectoryPath, true);
-            for (Result<Item> result : results) {
-                Item item = result.get();
-                String objectName = item.objectName();
-                if (isDirectory(objectName))
-                    continue;
+        List<ResourceResponse> results = new ArrayList<>();
+        streamSearchResults(userId, query).forEach(results::add);
+        return results;
+    }
 
-                String resourceName = getResourceName(objectName);
-                if (resourceName.toLowerCase().contains(query)) {
-                    resourceResponses.add(new ResourceResponse(
-                            getResponsePath(objectName),
-                            resourceName,
-                            item.size(),
-                            ResourceType.FILE
-                    ));
-                }
+    @Override
+    public List<ResourceResponse> searchResources(Integer userId, String query, int page, Integer limit) {
+        int pageSize = limit == null
+                ? searchProperties.getDefaultLimit()
+                : Math.min(limit, searchProperties.getMaxLimit());
+
+        ensureIndexed(userId);
+        return resourceIndexService.searchResources(userId, query, page, pageSize).stream()
+                .map(this::toSearchResult)
+                .toList();
+    }
+
+    @Override
+    public Iterable<ResourceResponse> streamSearchResults(Integer userId, String query) {
+        ensureIndexed(userId);
+        int pageSize = searchProperties.getMaxLimit();
+        return () -> pages(pageSize, last -> resourceIndexService.searchResourcesAfter(userId, query,
+                        last == null ? null : last.getName(), last == null ? null : last.getType(), last == null ? null : last.getId(), pageSize))
+                .map(this::toSearchResult)
+                .iterator();
+    }
+
+    @Override
+    @Transactional
+    public void deleteResource(Integer userId, String path) {
+        deleteResource(userId, path, ProgressListener.NONE);
+    }
+
+    @Override
+    @Transactional
+    public void deleteResource(Integer userId, String path, ProgressListener progressListener) {
+        ensureIndexed(userId);
+        resourceIndexService.lockUser(userId);
+        String absolutePath = buildPath(userId, path);
+        ResourceMetadata resource = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND));
+
+        List<String> unreferencedObjectKeys = new ArrayList<>();
+        try {
+            if (isDirectory(absolutePath)) {
+                releaseKeyedFiles(userId, absolutePath, unreferencedObjectKeys, progressListener);
+                deleteDirectoryRecursively(absolutePath, progressListener);
+                blobService.removePointers(absolutePath);
+            } else if (resource.getObjectKey() != null) {
+                releaseKeyedBatch(List.of(resource), unreferencedObjectKeys);
+                progressListener.onProgress(1, 0);
+            } else {
+                minioService.deleteObject(absolutePath);
+                blobService.removePointers(absolutePath);
+                progressListener.onProgress(1, 0);
             }
+        } catch (CloudStorageException e) {
+            markIndexStale(userId);
+            throw e;
         } catch (Exception e) {
+            markIndexStale(userId);
             throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return resourceResponses;
+        resourceIndexService.removeResource(userId, absolutePath);
+        afterCommit(() -> deleteUnreferencedObjects(unreferencedObjectKeys));
+        quotaService.evictUsage(userId);
+        if (isDirectory(absolutePath))
+            evictListingTree(absolutePath);
+        evictParentListing(absolutePath);
     }
 
     @Override
-    @Transactional
-    public void deleteResource(Integer userId, String path) {
-        String absolutePath = buildPath(userId, path);
-        if (!minioService.objectExists(absolutePath))
-            throw new CloudStorageException("Resource not found!", HttpStatus.NOT_FOUND);
+    public ResourceSummary summarizeResource(Integer userId, String path) {
+        ensureIndexed(userId);
+        return resourceIndexService.summarizeResource(userId, buildPath(userId, path));
+    }
+
+    /**
+     * Reads the usage counters kept on the directory's index entry, so the cost does not depend on its size.
+     */
+    @Override
+    public StorageUsageResponse getUsage(Integer userId, String path) {
+        String absolutePath = requireIndexedDirectory(userId, path);
+        ResourceMetadata directory = resourceIndexService.findResource(userId, absolutePath)
+                .orElseThrow(() -> new CloudStorageException("Directory not found!", HttpStatus.NOT_FOUND));
+        return new StorageUsageResponse(path, directory.getTotalSize(), directory.getFileCount());
+    }
 
+    /**
+     * Presigned URLs are scoped to the single object that holds a file's content, so they never grant access to
+     * anything the user could not read through the API.
+     */
+    private PresignedUrlResponse presign(String absolutePath, Method method, Map<String, String> queryParams) {
+        if (!presignedUrlProperties.isEnabled())
+            throw new CloudStorageException("Direct transfers are disabled!", HttpStatus.NOT_IMPLEMENTED);
+
+        Instant expiresAt = Instant.now().plus(presignedUrlProperties.getExpiry());
         try {
-            deleteDirectoryRecursively(absolutePath);
+            String url = minioService.getPresignedObjectUrl(absolutePath, method, presignedUrlProperties.getExpiry(), queryParams);
+            return new PresignedUrlResponse(url, method.name(), expiresAt);
         } catch (Exception e) {
             throw new CloudStorageException("Something went wrong!", HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
-    private Resource createZipArchive(String directoryPath) throws IOException, ServerException, InsufficientDataException,
-            ErrorResponseException, NoSuchAlgorithmException, InvalidKeyException,
-            InvalidResponseException, XmlParserException, InternalException {
+    private boolean usesObjectKeys() {
+        return objectKeyProperties.isEnabled();
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ZipOutputStream zos = new ZipOutputStream(baos);
+    /**
+     * Returns a fresh object key for a new file, or {@code null} when new files are stored at their path.
+     */
+    private String newObjectKey() {
+        return usesObjectKeys() ? OBJECT_KEY_PATH.formatted(UUID.randomUUID()) : null;
+    }
 
-        Iterable<Result<Item>> objects = minioService.listObjects(directoryPath, true);
+    private String resolveContentPath(ResourceMetadata resource) throws Exception {
+        return resource.getObjectKey() != null
+                ? resource.getObjectKey()
+                : blobService.resolveContentPath(resource.getAbsolutePath());
+    }
 
-        for (Result<Item> result : objects) {
-            Item item = result.get();
-            String objectName = item.objectName();
+    private String requireIndexedDirectory(Integer userId, String path) {
+        if (!path.isEmpty() && !isDirectory(path))
+            throw new CloudStorageException("Invalid path: must be a directory!", HttpStatus.BAD_REQUEST);
+
+        ensureIndexed(userId);
+        String absolutePath = buildPath(userId, path);
+        if (!resourceIndexService.resourceExists(userId, absolutePath))
+            throw new CloudStorageException("Directory not found!", HttpStatus.NOT_FOUND);
+        return absolutePath;
+    }
+
+    /**
+     * Lazily concatenates index pages of {@code pageSize} entries, loading the next page from the last entry of the
+     * previous one only when the consumer reaches it.
+     */
+    private static Stream<ResourceMetadata> pages(int pageSize, Function<ResourceMetadata, List<ResourceMetadata>> nextPage) {
+        return Stream.iterate(nextPage.apply(null),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < pageSize ? List.of() : nextPage.apply(page.getLast()))
+                .flatMap(List::stream);
+    }
+
+    private ResourceResponse toSearchResult(ResourceMetadata resource) {
+        return new ResourceResponse(
+                getResponsePath(resource.getAbsolutePath()),
+                resource.getName(),
+                resource.getSize(),
+                resource.getType());
+    }
+
+    private ResourceResponse toDirectoryEntry(ResourceMetadata resource) {
+        return new ResourceResponse(
+                getResponsePath(resource.getAbsolutePath()),
+                resource.getType() == ResourceType.DIRECTORY ? resource.getName() + "/" : resource.getName(),
+                resource.getSize(),
+                resource.getType());
+    }
+
+    /**
+     * The continuation token is the opaque, URL-safe encoding of the last returned entry's {@code type:name}.
+     */
+    private String encodeContinuationToken(ResourceMetadata resource) {
+        String position = resource.getType().name() + ":" + resource.getName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ResourceMetadata decodeContinuationToken(String continuationToken) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+            int separatorIndex = position.indexOf(':');
+            return ResourceMetadata.builder()
+                    .type(ResourceType.valueOf(position.substring(0, separatorIndex)))
+                    .name(position.substring(separatorIndex + 1))
+                    .build();
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new CloudStorageException("Invalid continuation token!", HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private void ensureIndexed(Integer userId) {
+        if (!resourceIndexService.isIndexed(userId)) {
+            resourceIndexService.reindexUser(userId);
+            evictListingTree(USER_DIRECTORY_PATH.formatted(userId));
+        }
+    }
+
+    private void markIndexStale(Integer userId) {
+        resourceIndexService.markStale(userId);
+        evictListingTree(USER_DIRECTORY_PATH.formatted(userId));
+    }
+
+    /**
+     * Returns the directories whose listings change when {@code absolutePath} is added: its parent, and every
+     * ancestor up to the first one that is already indexed, since the ones in between are created along with it.
+     * Directory entries carry no size, so the listings further up are unaffected. Must be called before the change.
+     */
+    private List<String> listingsChangedByAdding(Integer userId, String absolutePath) {
+        List<String> listings = new ArrayList<>();
+        for (String parentPath = getRelativePath(absolutePath); isDirectory(parentPath); parentPath = getRelativePath(parentPath)) {
+            listings.add(parentPath);
+            if (resourceIndexService.resourceExists(userId, parentPath))
+                break;
+        }
+        return listings;
+    }
+
+    private void evictParentListing(String absolutePath) {
+        evictListings(List.of(getRelativePath(absolutePath)));
+    }
+
+    private void evictListings(Collection<String> absoluteDirectoryPaths) {
+        Cache cache = cacheManager.getCache(DIRECTORY_LISTING_CACHE);
+        if (cache == null || absoluteDirectoryPaths.isEmpty())
+            return;
+
+        afterCompletion(() -> absoluteDirectoryPaths.forEach(cache::evict));
+    }
+
+    /**
+     * Evicts the cached listings of {@code absoluteDirectoryPath} and every directory below it.
+     */
+    private void evictListingTree(String absoluteDirectoryPath) {
+        Cache cache = cacheManager.getCache(DIRECTORY_LISTING_CACHE);
+        if (cache == null)
+            return;
+
+        afterCompletion(() -> {
+            if (cache instanceof CaffeineCache caffeineCache)
+                caffeineCache.getNativeCache().asMap().keySet().removeIf(key -> key.toString().startsWith(absoluteDirectoryPath));
+            else
+                cache.clear();
+        });
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has finished, so a concurrent reader cannot re-cache a listing
+     * from the index before the change is committed.
+     */
+    private static void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} only once the current transaction has committed, or straight away outside a transaction.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} if the current transaction rolls back, to remove what was written to storage for it.
+     */
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK)
+                    action.run();
+            }
+        });
+    }
+
+    private StreamingResponseBody createZipArchive(Integer userId, String directoryPath, ProgressListener progressListener) {
+        return outputStream -> {
+            ZipOutputStream zos = new ZipOutputStream(outputStream);
+            try {
+                writeZipEntries(userId, directoryPath, zos, progressListener);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error while archiving directory: " + directoryPath, e);
+            }
+            zos.finish();
+            zos.flush();
+        };
+    }
+
+    /**
+     * Writes every file under {@code directoryPath} into the archive in {@link ArchiveEntries} order. Up to
+     * {@code prefetchDepth} objects ahead of the writer are fetched concurrently; objects small enough
+     * to fit their share of the memory budget are buffered, larger ones are streamed when reached.
+     */
+    private void writeZipEntries(Integer userId, String directoryPath, ZipOutputStream zos, ProgressListener progressListener)
+            throws Exception {
+        int prefetchDepth = Math.max(1, downloadProperties.getPrefetchDepth());
+        long maxBufferedObjectSize = downloadProperties.getPrefetchMemoryBudget().toBytes() / prefetchDepth;
 
-            if (objectName.equals(directoryPath) || isDirectory(objectName))
-                continue;
+        ArchiveEntries entries = new ArchiveEntries(userId, directoryPath);
+        Deque<PrefetchedObject> window = new ArrayDeque<>(prefetchDepth);
+        try {
+            while (true) {
+                ArchiveEntry entry;
+                while (window.size() < prefetchDepth && (entry = entries.next()) != null) {
+                    String contentPath = entry.contentPath();
+                    Future<byte[]> content = entry.size() <= maxBufferedObjectSize
+                            ? storageExecutor.submit(() -> readObject(contentPath))
+                            : null;
+                    window.addLast(new PrefetchedObject(entry.name(), contentPath, content));
+                }
 
-            try (InputStream inputStream = minioService.getObject(objectName)) {
-                String relativePath = objectName.substring(directoryPath.length());
-                ZipEntry zipEntry = new ZipEntry(relativePath);
-                zos.putNextEntry(zipEntry);
+                PrefetchedObject next = window.pollFirst();
+                if (next == null)
+                    break;
 
-                byte[] buffer = new byte[1024];
-                int length;
-                while ((length = inputStream.read(buffer)) > 0) {
-                    zos.write(buffer, 0, length);
+                zos.putNextEntry(new ZipEntry(next.entryName()));
+                long written;
+                if (next.content() != null) {
+                    byte[] content = next.content().get();
+                    zos.write(content);
+                    written = content.length;
+                } else {
+                    try (InputStream inputStream = minioService.getObject(next.contentPath())) {
+                        written = inputStream.transferTo(zos);
+                    }
                 }
                 zos.closeEntry();
+                progressListener.onProgress(1, written);
+            }
+        } finally {
+            for (PrefetchedObject pending : window) {
+                if (pending.content() != null)
+                    pending.content().cancel(true);
+            }
+        }
+    }
+
+    private byte[] readObject(String objectName) throws Exception {
+        try (InputStream inputStream = minioService.getObject(objectName)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Removes every object under {@code absolutePath} using multi-object delete requests of at most
+     * {@code storage.delete.batch-size} keys, so only one batch of keys is held in memory at a time.
+     */
+    private void deleteDirectoryRecursively(String absolutePath, ProgressListener progressListener) throws Exception {
+        int batchSize = deleteProperties.getBatchSize();
+        List<String> batch = new ArrayList<>(batchSize);
+        List<String> reportedErrors = new ArrayList<>();
+        long failedCount = 0;
+        long batchBytes = 0;
+
+        for (Result<Item> result : minioService.listObjects(absolutePath, true)) {
+            Item item = result.get();
+            batch.add(item.objectName());
+            batchBytes += item.size();
+            if (batch.size() == batchSize) {
+                failedCount += deleteBatch(batch, reportedErrors).size();
+                progressListener.onProgress(batch.size(), batchBytes);
+                batch = new ArrayList<>(batchSize);
+                batchBytes = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            failedCount += deleteBatch(batch, reportedErrors).size();
+            progressListener.onProgress(batch.size(), batchBytes);
+        }
+
+        if (failedCount > 0)
+            throw new CloudStorageException("Failed to delete %d object(s): %s".formatted(failedCount, String.join("; ", reportedErrors)),
+                    HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Collects the object keys of every file stored under an object key below {@code absolutePath}, one
+     * {@code storage.delete.batch-size} page of index rows at a time, and releases the blobs referenced by
+     * deduplicated ones. The releases commit together with the removal of the rows; the objects themselves are removed
+     * only after that, so a delete that fails halfway never leaves rows pointing at missing content.
+     */
+    private void releaseKeyedFiles(Integer userId, String absolutePath, List<String> objectKeys, ProgressListener progressListener) {
+        int batchSize = deleteProperties.getBatchSize();
+        long afterId = 0;
+
+        List<ResourceMetadata> batch;
+        do {
+            batch = resourceIndexService.listKeyedFiles(userId, absolutePath, afterId, batchSize);
+            if (batch.isEmpty())
+                break;
+
+            releaseKeyedBatch(batch, objectKeys);
+            progressListener.onProgress(batch.size(), batch.stream().mapToLong(ResourceMetadata::getSize).sum());
+            afterId = batch.getLast().getId();
+        } while (batch.size() == batchSize);
+    }
+
+    private void releaseKeyedBatch(List<ResourceMetadata> files, List<String> objectKeys) {
+        List<String> releasedHashes = new ArrayList<>();
+        for (ResourceMetadata file : files) {
+            if (file.getObjectKey().startsWith(BlobService.BLOB_PREFIX))
+                releasedHashes.add(file.getObjectKey().substring(BlobService.BLOB_PREFIX.length()));
+            else
+                objectKeys.add(file.getObjectKey());
+        }
+        if (!releasedHashes.isEmpty())
+            blobService.releaseReferences(releasedHashes);
+    }
+
+    /**
+     * Removes objects that no committed index row refers to any more, in {@code storage.delete.batch-size} batches.
+     * Objects that cannot be removed are only logged; the orphan sweep picks them up later.
+     */
+    private void deleteUnreferencedObjects(List<String> objectKeys) {
+        int batchSize = deleteProperties.getBatchSize();
+        for (int from = 0; from < objectKeys.size(); from += batchSize) {
+            List<String> batch = objectKeys.subList(from, Math.min(from + batchSize, objectKeys.size()));
+            try {
+                Set<String> failedObjects = deleteBatch(batch, new ArrayList<>());
+                if (!failedObjects.isEmpty())
+                    log.warn("Failed to remove {} unreferenced object(s)", failedObjects.size());
+            } catch (Exception e) {
+                log.warn("Failed to remove {} unreferenced object(s)", batch.size(), e);
+            }
+        }
+    }
+
+    private void deleteObjectQuietly(String objectName) {
+        try {
+            minioService.deleteObject(objectName);
+        } catch (Exception e) {
+            log.warn("Failed to delete object '{}'", objectName, e);
+        }
+    }
+
+    private Set<String> deleteBatch(List<String> batch, List<String> reportedErrors) throws Exception {
+        Set<String> failedObjects = new HashSet<>();
+        for (Result<DeleteError> result : minioService.deleteObjects(batch)) {
+            DeleteError error = result.get();
+            log.warn("Failed to delete object '{}': {} ({})", error.objectName(), error.message(), error.code());
+            if (reportedErrors.size() < deleteProperties.getMaxReportedErrors())
+                reportedErrors.add(getResponsePath(error.objectName()) + getResourceName(error.objectName()));
+            failedObjects.add(error.objectName());
+        }
+        return failedObjects;
+    }
+
+    /**
+     * Moves the tree under {@code from} in listing batches of {@code storage.move.batch-size} objects: each batch is
+     * copied server-side by up to {@code storage.move.copy-concurrency} parallel workers, and its sources are removed
+     * with a single multi-object delete only after every copy in the batch has succeeded and its blob pointer records
+     * have been moved along. If a copy fails, the copies already made for that batch are removed again, so its objects
+     * exist only at the source.
+     */
+    private void moveDirectoryRecursively(String from, String to, ProgressListener progressListener) throws Exception {
+        int batchSize = moveProperties.getBatchSize();
+        Set<String> ensuredDirectories = new HashSet<>();
+        List<Item> batch = new ArrayList<>(batchSize);
+
+        for (Result<Item> result : minioService.listObjects(from, true)) {
+            batch.add(result.get());
+            if (batch.size() == batchSize) {
+                moveBatch(from, to, batch, ensuredDirectories, progressListener);
+                batch = new ArrayList<>(batchSize);
             }
         }
-        zos.finish();
-        return new ByteArrayResource(baos.toByteArray());
+        if (!batch.isEmpty())
+            moveBatch(from, to, batch, ensuredDirectories, progressListener);
     }
 
-    private void deleteDirectoryRecursively(String absolutePath) throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
-        Iterable<Result<Item>> objects = minioService.listObjects(absolutePath, true);
+    private void moveBatch(String from, String to, List<Item> sources, Set<String> ensuredDirectories,
+                           ProgressListener progressListener) throws Exception {
+        List<String> sourcePaths = sources.stream().map(Item::objectName).toList();
+        for (String sourcePath : sourcePaths) {
+            if (isDirectory(sourcePath))
+                ensuredDirectories.add(to + sourcePath.substring(from.length()));
+        }
+        for (String sourcePath : sourcePaths)
+            ensureParentDirectories(to + sourcePath.substring(from.length()), ensuredDirectories);
+
+        Semaphore permits = new Semaphore(Math.max(1, moveProperties.getCopyConcurrency()));
+        Queue<String> copiedTargets = new ConcurrentLinkedQueue<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<Future<?>> copies = new ArrayList<>(sources.size());
+        for (Item source : sources) {
+            String sourcePath = source.objectName();
+            String targetPath = to + sourcePath.substring(from.length());
+            copies.add(storageExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    if (aborted.get())
+                        return null;
+                    minioService.copyObject(sourcePath, targetPath);
+                    copiedTargets.add(targetPath);
+                } finally {
+                    permits.release();
+                }
+                progressListener.onProgress(1, source.size());
+                return null;
+            }));
+        }
 
-        for (Result<Item> result : objects) {
-            minioService.deleteObject(result.get().objectName());
+        try {
+            for (Future<?> copy : copies)
+                copy.get();
+        } catch (Exception e) {
+            aborted.set(true);
+            awaitCompletion(copies);
+            removeCopiedTargets(new ArrayList<>(copiedTargets));
+            throw e;
         }
+
+        blobService.movePointers(sourcePaths, from, to);
+        List<String> reportedErrors = new ArrayList<>();
+        long failedCount = deleteBatch(sourcePaths, reportedErrors).size();
+        if (failedCount > 0)
+            throw new CloudStorageException("Moved, but failed to remove %d source object(s): %s".formatted(failedCount, String.join("; ", reportedErrors)),
+                    HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
-    private void moveDirectoryRecursively(String from, String to) throws Exception {
-        Iterable<Result<Item>> objects = minioService.listObjects(from, true);
+    private static void awaitCompletion(List<Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (Exception ignored) {
+                // only waiting for copies in flight to finish, the first failure is reported by the caller
+            }
+        }
+    }
 
-        for (Result<Item> result : objects) {
-            String oldPath = result.get().objectName();
-            String newPath = oldPath.replace(from, to);
-            createIntermediateDirectoriesIfNeeded(newPath);
+    /**
+     * Best-effort removal of the targets of a failed move batch. Failures are only logged, the original error is the
+     * one reported to the client.
+     */
+    private void removeCopiedTargets(List<String> targets) {
+        if (targets.isEmpty())
+            return;
 
-            minioService.moveObject(oldPath, newPath);
+        try {
+            Set<String> failedObjects = deleteBatch(targets, new ArrayList<>());
+            if (!failedObjects.isEmpty())
+                log.warn("Failed to remove {} partial move target(s)", failedObjects.size());
+        } catch (Exception e) {
+            log.warn("Failed to remove {} partial move target(s)", targets.size(), e);
         }
     }
 
+    /**
+     * Creates the missing directory marker objects above {@code path}. Directories live in the index alone with
+     * {@code storage.object-keys.enabled}, so no markers are written then.
+     */
+    private void ensureParentDirectories(String path, Set<String> ensuredDirectories) throws Exception {
+        if (usesObjectKeys())
+            return;
+
+        String parentPath = getRelativePath(path);
+        if (!isDirectory(parentPath) || !ensuredDirectories.add(parentPath))
+            return;
+
+        ensureParentDirectories(parentPath, ensuredDirectories);
+        createEmptyObjectIfNotExist(parentPath);
+    }
+
     private void createEmptyObjectIfNotExist(String path) throws Exception {
         if (!minioService.objectExists(path)) {
             minioService.createDirectory(path);
         }
     }
 
-    private void createIntermediateDirectoriesIfNeeded(String path) throws Exception {
-        String[] pathParts = path.split("/");
+    /**
+     * @param contentHash the referenced blob for deduplicated content, otherwise {@code null}
+     */
+    private record StoredContent(String objectKey, String etag, String contentHash, long size) {
+    }
+
+    private record ArchiveEntry(String name, String contentPath, long size) {
+    }
+
+    private record PrefetchedObject(String entryName, String contentPath, Future<byte[]> content) {
+    }
+
+    /**
+     * Yields the files under a directory for archiving: first those stored at their path, in listing order, then
+     * those stored under object keys, read from the index in pages of {@code storage.listing.max-limit} rows.
+     */
+    private class ArchiveEntries {
+        private final Integer userId;
+        private final String directoryPath;
+        private final Iterator<Result<Item>> objects;
+        private final Deque<ResourceMetadata> keyedFiles = new ArrayDeque<>();
+        private long lastKeyedId;
+        private boolean keyedFilesExhausted;
+
+        ArchiveEntries(Integer userId, String directoryPath) {
+            this.userId = userId;
+            this.directoryPath = directoryPath;
+            this.objects = minioService.listObjects(directoryPath, true).iterator();
+        }
+
+        ArchiveEntry next() throws Exception {
+            while (objects.hasNext()) {
+                Item item = objects.next().get();
+                String objectName = item.objectName();
+                if (isDirectory(objectName))
+                    continue;
+
+                if (item.size() == 0) {
+                    Optional<BlobPointer> pointer = blobService.findPointer(objectName);
+                    if (pointer.isPresent())
+                        return new ArchiveEntry(objectName.substring(directoryPath.length()), pointer.get().blobPath(), pointer.get().size());
+                }
+                return new ArchiveEntry(objectName.substring(directoryPath.length()), objectName, item.size());
+            }
+
+            if (keyedFiles.isEmpty() && !keyedFilesExhausted) {
+                int pageSize = listingProperties.getMaxLimit();
+                List<ResourceMetadata> page = resourceIndexService.listKeyedFiles(userId, directoryPath, lastKeyedId, pageSize);
+                keyedFiles.addAll(page);
+                keyedFilesExhausted = page.size() < pageSize;
+                if (!page.isEmpty())
+                    lastKeyedId = page.getLast().getId();
+            }
 
-        StringBuilder currentDirPath = new StringBuilder();
-        for (int i = 0; i < pathParts.length - 1; i++) {
-            currentDirPath.append(pathParts[i]).append("/");
-            String directoryPath = currentDirPath.toString();
-            createEmptyObjectIfNotExist(directoryPath);
+            ResourceMetadata file = keyedFiles.pollFirst();
+            return file == null
+                    ? null
+                    : new ArchiveEntry(file.getAbsolutePath().substring(directoryPath.length()), file.getObjectKey(), file.getSize());
         }
     }
 }
@@ -0,0 +1,104 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.zhenya.cloudstorage.dto.ResourceSummary;
+import ua.zhenya.cloudstorage.model.User;
+import ua.zhenya.cloudstorage.properties.UsageProperties;
+import ua.zhenya.cloudstorage.repository.UserRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+import ua.zhenya.cloudstorage.service.UsageReconciliationService;
+
+import java.time.ZonedDateTime;
+
+import static ua.zhenya.cloudstorage.utils.Constants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.PathUtils.isDirectory;
+
+/**
+ * Periodically corrects drift in the usage counters. The files a user keeps at their path are listed from the bucket
+ * and compared with the index: on a mismatch the index is marked stale, so it is rebuilt from the bucket, counters
+ * included, on the next access; otherwise the counters are recalculated from the index. Files stored under object
+ * keys exist only in the index, which is authoritative for them, and uploads are staged under a prefix of their own,
+ * so neither is listed. The comparison runs under the user's lock and leaves out files changed within the grace
+ * period on both sides, so uploads still being written at their path do not count as drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UsageReconciliationServiceImpl implements UsageReconciliationService {
+    private final ResourceIndexService resourceIndexService;
+    private final MinioService minioService;
+    private final BlobService blobService;
+    private final UserRepository userRepository;
+    private final UsageProperties usageProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @Scheduled(initialDelayString = "#{@usageProperties.reconcileInterval.toMillis()}",
+            fixedDelayString = "#{@usageProperties.reconcileInterval.toMillis()}")
+    public void reconcileAllUsers() {
+        Page<User> users;
+        int page = 0;
+        do {
+            users = userRepository.findAll(PageRequest.of(page++, usageProperties.getReconcileBatchSize(), Sort.by("id")));
+            for (User user : users) {
+                try {
+                    reconcileUser(user.getId());
+                } catch (Exception e) {
+                    log.warn("Failed to reconcile storage usage of user ID: {}", user.getId(), e);
+                }
+            }
+        } while (users.hasNext());
+    }
+
+    @Override
+    public void reconcileUser(Integer userId) {
+        if (!resourceIndexService.isIndexed(userId))
+            return;
+
+        Boolean stale = transactionTemplate.execute(status -> {
+            resourceIndexService.lockUser(userId);
+            ZonedDateTime settledBefore = ZonedDateTime.now().minus(usageProperties.getReconcileGracePeriod());
+            long fileCount = 0;
+            long totalSize = 0;
+            try {
+                for (Result<Item> result : minioService.listObjects(USER_DIRECTORY_PATH.formatted(userId), true)) {
+                    Item item = result.get();
+                    if (isDirectory(item.objectName()) || !item.lastModified().isBefore(settledBefore))
+                        continue;
+
+                    long size = item.size();
+                    if (size == 0)
+                        size = blobService.findPointer(item.objectName()).map(BlobPointer::size).orElse(0L);
+                    fileCount++;
+                    totalSize += size;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to list storage of user ID: {}", userId, e);
+                return false;
+            }
+
+            ResourceSummary indexed = resourceIndexService.summarizeUnkeyedFiles(userId, usageProperties.getReconcileGracePeriod());
+            if (indexed.getObjectCount() != fileCount || indexed.getTotalSize() != totalSize) {
+                log.warn("Index of user ID: {} has {} file(s) / {} byte(s), storage has {} / {}", userId,
+                        indexed.getObjectCount(), indexed.getTotalSize(), fileCount, totalSize);
+                return true;
+            }
+            resourceIndexService.recomputeUsage(userId);
+            return false;
+        });
+        if (Boolean.TRUE.equals(stale))
+            resourceIndexService.markStale(userId);
+    }
+}
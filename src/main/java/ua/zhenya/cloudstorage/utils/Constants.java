@@ -2,4 +2,8 @@ package ua.zhenya.cloudstorage.utils;
 
 public class Constants {
     public static final String USER_DIRECTORY_PATH = "user-%d-files/";
+    public static final String OBJECT_KEY_PREFIX = "objects/";
+    public static final String OBJECT_KEY_PATH = OBJECT_KEY_PREFIX + "%s";
+    public static final String UPLOAD_PREFIX = "uploads/";
+    public static final String DIRECTORY_LISTING_CACHE = "directory-listings";
 }
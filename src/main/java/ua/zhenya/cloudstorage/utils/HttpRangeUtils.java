@@ -0,0 +1,101 @@
+package ua.zhenya.cloudstorage.utils;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+public class HttpRangeUtils {
+
+    /**
+     * Resolves a {@code Range} header against a file of {@code size} bytes. A header that cannot be parsed yields no
+     * ranges, since RFC 9110 requires it to be ignored and the whole file to be sent.
+     *
+     * @throws IllegalArgumentException if the header is valid but not satisfiable, which is answered with 416
+     */
+    public static List<ByteRange> resolveRanges(String range, long size) {
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+        if (httpRanges.isEmpty())
+            return List.of();
+        if (size == 0)
+            throw new IllegalArgumentException("Empty file has no satisfiable ranges");
+
+        List<ByteRange> byteRanges = new ArrayList<>();
+        long totalLength = 0;
+        for (HttpRange httpRange : httpRanges) {
+            ByteRange byteRange = new ByteRange(httpRange.getRangeStart(size), httpRange.getRangeEnd(size));
+            if (byteRange.start() >= size || byteRange.length() <= 0)
+                throw new IllegalArgumentException("Unsatisfiable range: " + httpRange);
+            byteRanges.add(byteRange);
+            totalLength += byteRange.length();
+        }
+        if (totalLength > size)
+            throw new IllegalArgumentException("Requested ranges exceed the file size");
+        return byteRanges;
+    }
+
+    /**
+     * A range request only applies if the representation still matches the If-Range validator (strong comparison);
+     * otherwise the whole file is sent.
+     */
+    public static boolean ifRangeMatches(String ifRange, String etag, Instant lastModified) {
+        if (ifRange == null)
+            return true;
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return ifRange.equals(etag);
+        try {
+            return ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() == lastModified.getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    public static MediaType multipartByteRanges(String boundary) {
+        return new MediaType("multipart", "byteranges", Map.of("boundary", boundary));
+    }
+
+    /**
+     * Writes a {@code multipart/byteranges} body, opening every part with {@code openRange} only when it is reached.
+     */
+    public static StreamingResponseBody toMultipartByteRanges(List<ByteRange> byteRanges, long size, MediaType contentType,
+                                                              String boundary, Function<ByteRange, InputStream> openRange) {
+        return outputStream -> {
+            for (ByteRange byteRange : byteRanges) {
+                String partHeaders = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + byteRange.contentRange(size) + "\r\n\r\n";
+                outputStream.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                try (InputStream part = openRange.apply(byteRange)) {
+                    part.transferTo(outputStream);
+                }
+            }
+            outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+    }
+
+    public record ByteRange(long start, long end) {
+        public long length() {
+            return end - start + 1;
+        }
+
+        public String contentRange(long size) {
+            return "bytes %d-%d/%d".formatted(start, end, size);
+        }
+    }
+}
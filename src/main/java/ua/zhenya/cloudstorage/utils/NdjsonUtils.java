@@ -0,0 +1,30 @@
+package ua.zhenya.cloudstorage.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+public class NdjsonUtils {
+    private static final int FLUSH_INTERVAL = 100;
+
+    /**
+     * Writes each item as one JSON line while the items are being produced, flushing every
+     * {@value #FLUSH_INTERVAL} lines so the client starts receiving data before the last item is read.
+     */
+    public static StreamingResponseBody toNdjson(ObjectMapper objectMapper, Iterable<?> items) {
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+
+                int written = 0;
+                for (Object item : items) {
+                    generator.writeObject(item);
+                    generator.writeRaw('\n');
+                    if (++written % FLUSH_INTERVAL == 0)
+                        generator.flush();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE resources (
+    id BIGINT PRIMARY KEY GENERATED BY DEFAULT AS IDENTITY,
+    user_id INT NOT NULL,
+    parent_path varchar(1024) NOT NULL,
+    name varchar(1024) NOT NULL,
+    type varchar(16) NOT NULL,
+    size BIGINT,
+    etag varchar(128),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    constraint resource_type CHECK (type IN ('DIRECTORY', 'FILE'))
+);
+
+CREATE UNIQUE INDEX idx_resources_user_parent_name ON resources(user_id, parent_path, name, type);
+CREATE INDEX idx_resources_user_parent_prefix ON resources(user_id, parent_path varchar_pattern_ops);
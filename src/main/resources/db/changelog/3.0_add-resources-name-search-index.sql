@@ -0,0 +1,3 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_resources_name_trgm ON resources USING gin (name gin_trgm_ops);
@@ -0,0 +1,9 @@
+CREATE TABLE blobs (
+    content_hash varchar(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_blobs_unreferenced ON blobs(updated_at) WHERE ref_count = 0;
@@ -0,0 +1,3 @@
+ALTER TABLE resources ADD COLUMN object_key varchar(1024);
+
+CREATE INDEX idx_resources_unkeyed_files ON resources(user_id, id) WHERE type = 'FILE' AND object_key IS NULL;
@@ -0,0 +1,14 @@
+ALTER TABLE resources ADD COLUMN total_size BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE resources ADD COLUMN file_count BIGINT DEFAULT 0 NOT NULL;
+
+UPDATE resources d
+SET total_size = counted.total_size, file_count = counted.file_count
+FROM (
+    SELECT f.user_id, substring(f.parent_path FROM 1 FOR slash.i) AS directory_path,
+           sum(f.size) AS total_size, count(*) AS file_count
+    FROM resources f
+    CROSS JOIN LATERAL generate_series(1, char_length(f.parent_path)) AS slash(i)
+    WHERE f.type = 'FILE' AND substring(f.parent_path FROM slash.i FOR 1) = '/'
+    GROUP BY f.user_id, directory_path
+) counted
+WHERE d.type = 'DIRECTORY' AND d.user_id = counted.user_id AND d.parent_path || d.name || '/' = counted.directory_path;
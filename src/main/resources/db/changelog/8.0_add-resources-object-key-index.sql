@@ -0,0 +1 @@
+CREATE INDEX idx_resources_object_key ON resources(object_key) WHERE object_key IS NOT NULL;
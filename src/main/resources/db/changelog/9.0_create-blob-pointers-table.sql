@@ -0,0 +1,8 @@
+CREATE TABLE blob_pointers (
+    path varchar(2048) PRIMARY KEY,
+    content_hash varchar(64) NOT NULL,
+    size BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_blob_pointers_path_prefix ON blob_pointers(path varchar_pattern_ops);
@@ -1,11 +1,26 @@
 package ua.zhenya.cloudstorage;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import ua.zhenya.cloudstorage.config.UserDetailsImpl;
+import ua.zhenya.cloudstorage.model.User;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
 
 @SpringBootTest
 @AutoConfigureMockMvc
 public class BaseIntegrationTest extends BaseTest {
 
+    @Autowired
+    protected MockMvc mockMvc;
 
+    protected static RequestPostProcessor asUser1() {
+        User user = new User("user1", "password");
+        user.setId(USER_1_ID);
+        return user(new UserDetailsImpl(user));
+    }
 }
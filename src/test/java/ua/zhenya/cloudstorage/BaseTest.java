@@ -9,11 +9,14 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.web.multipart.MultipartFile;
+import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.MinIOContainer;
+import ua.zhenya.cloudstorage.repository.ResourceMetadataRepository;
 import ua.zhenya.cloudstorage.service.MinioService;
 
 import java.io.ByteArrayInputStream;
@@ -33,6 +36,8 @@ import java.util.zip.ZipInputStream;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.Constants.OBJECT_KEY_PREFIX;
+import static ua.zhenya.cloudstorage.utils.Constants.UPLOAD_PREFIX;
 
 @ActiveProfiles("test")
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -41,6 +46,9 @@ public abstract class BaseTest {
     static final MinIOContainer minioContainer = new MinIOContainer("minio/minio")
             .withUserName("username")
             .withPassword("password");
+    static final GenericContainer<?> redisContainer = new GenericContainer<>("redis:7-alpine")
+            .withCommand("redis-server", "--requirepass", "password")
+            .withExposedPorts(6379);
 
     @Autowired
     protected MinioClient minioClient;
@@ -48,11 +56,18 @@ public abstract class BaseTest {
     @Autowired
     protected MinioService minioService;
 
+    @Autowired
+    protected ResourceMetadataRepository resourceMetadataRepository;
+
+    @Autowired
+    protected CacheManager cacheManager;
+
     @Value("${minio.bucket-name}")
     private String bucketName;
 
     static {
         minioContainer.start();
+        redisContainer.start();
     }
 
     @DynamicPropertySource
@@ -60,6 +75,8 @@ public abstract class BaseTest {
         registry.add("minio.endpoint", minioContainer::getS3URL);
         registry.add("minio.access-key", minioContainer::getUserName);
         registry.add("minio.secret-key", minioContainer::getPassword);
+        registry.add("spring.data.redis.host", redisContainer::getHost);
+        registry.add("spring.data.redis.port", () -> redisContainer.getMappedPort(6379));
     }
 
     @BeforeAll
@@ -83,18 +100,22 @@ public abstract class BaseTest {
 
     @AfterEach
     void clearMinio() throws Exception {
-        Iterable<Result<Item>> results = minioClient.listObjects(
-                ListObjectsArgs.builder().bucket(bucketName).prefix(USER_DIRECTORY_PATH).recursive(true).build()
-        );
-
-        for (Result<Item> result : results) {
-            String objectName = result.get().objectName();
-            if (!objectName.equals(USER_DIRECTORY_PATH)) {
-                minioClient.removeObject(
-                        RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build()
-                );
+        for (String prefix : List.of(USER_DIRECTORY_PATH, OBJECT_KEY_PREFIX, UPLOAD_PREFIX)) {
+            Iterable<Result<Item>> results = minioClient.listObjects(
+                    ListObjectsArgs.builder().bucket(bucketName).prefix(prefix).recursive(true).build()
+            );
+
+            for (Result<Item> result : results) {
+                String objectName = result.get().objectName();
+                if (!objectName.equals(USER_DIRECTORY_PATH)) {
+                    minioClient.removeObject(
+                            RemoveObjectArgs.builder().bucket(bucketName).object(objectName).build()
+                    );
+                }
             }
         }
+        resourceMetadataRepository.deleteAllInBatch();
+        cacheManager.getCacheNames().forEach(cacheName -> cacheManager.getCache(cacheName).clear());
     }
 
     public <T, R> void assertContainsOnly(List<T> actualItems,
@@ -0,0 +1,63 @@
+package ua.zhenya.cloudstorage.aop;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.TestPropertySource;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+@ExtendWith(OutputCaptureExtension.class)
+@TestPropertySource(properties = {
+        "storage.logging.sample-rate=0.0",
+        "storage.logging.method-sample-rates.getResourceInfo=1.0",
+        "storage.logging.method-sample-rates.searchResources=1.0",
+        "storage.logging.max-value-length=10",
+        "storage.logging.slow-call-threshold=1m"
+})
+class ServiceLoggingAspectTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Test
+    void logsSampledCalls_withSummarizedArgumentsAndResult(CapturedOutput output) {
+        upload("file.bin");
+        String query = "q".repeat(50);
+
+        resourceService.getResourceInfo(USER_1_ID, "file.bin");
+        resourceService.searchResources(USER_1_ID, query);
+
+        assertThat(output).contains("Call: ResourceServiceImpl.getResourceInfo(1, file.bin) with result = ResourceResponse[path=")
+                .contains("type=FILE]");
+        assertThat(output).contains("Call: ResourceServiceImpl.searchResources(1, qqqqqqqqqq...(50 chars)) with result = ")
+                .doesNotContain(query);
+    }
+
+    @Test
+    void skipsCallsOfUnsampledMethods_butLogsTheirRejections(CapturedOutput output) {
+        upload("file.bin");
+
+        resourceService.getDirectoryContent(USER_1_ID, "");
+        resourceService.getResourceInfo(USER_1_ID, "file.bin");
+        assertThatThrownBy(() -> resourceService.getDirectoryContent(USER_1_ID, "missing/"))
+                .isInstanceOf(CloudStorageException.class);
+
+        assertThat(output).contains("Call: ResourceServiceImpl.getResourceInfo(")
+                .doesNotContain("Call: ResourceServiceImpl.getDirectoryContent(")
+                .contains("Rejected: ResourceServiceImpl.getDirectoryContent(1, missing/) with status 404");
+    }
+
+    private void upload(String filename) {
+        resourceService.uploadResource(USER_1_ID, "", filename, new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+    }
+}
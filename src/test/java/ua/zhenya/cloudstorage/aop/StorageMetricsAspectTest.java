@@ -0,0 +1,45 @@
+package ua.zhenya.cloudstorage.aop;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+class StorageMetricsAspectTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void failedCalls_countedPerCause_onOneCounter() {
+        assertThatThrownBy(() -> resourceService.getResourceInfo(USER_1_ID, "missing.bin")).isInstanceOf(CloudStorageException.class);
+        Counter errors = errorCounter();
+        double before = errors.count();
+
+        assertThatThrownBy(() -> resourceService.getResourceInfo(USER_1_ID, "missing.bin")).isInstanceOf(CloudStorageException.class);
+
+        assertThat(errorCounter()).isSameAs(errors);
+        assertThat(errors.count()).isEqualTo(before + 1);
+        assertThat(meterRegistry.get("storage.operation").tag("method", "getResourceInfo").tag("outcome", "error").timer().count())
+                .isGreaterThanOrEqualTo(2);
+    }
+
+    private Counter errorCounter() {
+        return meterRegistry.get("storage.operation.errors")
+                .tag("class", "ResourceServiceImpl")
+                .tag("method", "getResourceInfo")
+                .tag("exception", "CloudStorageException")
+                .tag("status", "404")
+                .counter();
+    }
+}
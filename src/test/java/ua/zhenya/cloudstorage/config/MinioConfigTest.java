@@ -0,0 +1,62 @@
+package ua.zhenya.cloudstorage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.properties.MinioProperties;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinioConfigTest extends BaseIntegrationTest {
+
+    @Autowired
+    private OkHttpClient minioHttpClient;
+
+    @Autowired
+    private MinioProperties minioProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void minioHttpClient_raisesDispatcherLimits_fromProperties() {
+        Dispatcher dispatcher = minioHttpClient.dispatcher();
+
+        assertThat(dispatcher.getMaxRequests()).isEqualTo(minioProperties.getMaxRequests());
+        assertThat(dispatcher.getMaxRequestsPerHost()).isEqualTo(minioProperties.getMaxRequestsPerHost());
+    }
+
+    @Test
+    void minioHttpClient_dispatchesCallsOnVirtualThreads() throws Exception {
+        Thread thread = minioHttpClient.dispatcher().executorService()
+                .submit(Thread::currentThread)
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(thread.isVirtual()).isTrue();
+        assertThat(thread.getName()).startsWith("minio-");
+    }
+
+    @Test
+    void minioHttpClient_usesTimeoutsFromProperties() {
+        assertThat(minioHttpClient.connectTimeoutMillis()).isEqualTo(minioProperties.getConnectTimeout().toMillis());
+        assertThat(minioHttpClient.readTimeoutMillis()).isEqualTo(minioProperties.getReadTimeout().toMillis());
+        assertThat(minioHttpClient.writeTimeoutMillis()).isEqualTo(minioProperties.getWriteTimeout().toMillis());
+    }
+
+    @Test
+    void minioHttpClient_exportsPoolAndDispatcherMetrics() {
+        minioService.objectExists(buildPath("metrics.bin"));
+
+        assertThat(meterRegistry.get("minio.http.calls").tag("client", "minio").tag("state", "running").gauge().value()).isZero();
+        assertThat(meterRegistry.get("minio.http.calls").tag("client", "minio").tag("state", "queued").gauge().value()).isZero();
+        assertThat(meterRegistry.get("minio.http.connection.limit").tag("client", "minio").gauge().value())
+                .isEqualTo(minioProperties.getMaxIdleConnections());
+        assertThat(meterRegistry.get("minio.http.connection.count").tag("client", "minio").tag("state", "idle").gauge().value())
+                .isPositive();
+    }
+}
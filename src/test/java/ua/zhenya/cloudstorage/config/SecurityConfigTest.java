@@ -0,0 +1,18 @@
+package ua.zhenya.cloudstorage.config;
+
+import org.junit.jupiter.api.Test;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SecurityConfigTest extends BaseIntegrationTest {
+
+    @Test
+    void actuator_isNotPublic_onApplicationPort() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isUnauthorized());
+    }
+}
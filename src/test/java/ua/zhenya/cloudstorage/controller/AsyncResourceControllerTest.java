@@ -0,0 +1,98 @@
+package ua.zhenya.cloudstorage.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.repository.ContentBlobRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.ResourceService;
+import ua.zhenya.cloudstorage.testdata.TestData;
+
+import java.io.ByteArrayInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+@TestPropertySource(properties = {
+        "storage.async.enabled=true",
+        "storage.dedup.enabled=true"
+})
+class AsyncResourceControllerTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private BlobService blobService;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Test
+    void uploadStream_deduplicatesContent_likeBlockingUpload() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "first.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        MockHttpServletResponse response = perform(put("/api/async/resource/stream")
+                .param("filename", "second.txt")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        BlobPointer pointer = blobService.findPointer(buildPath("second.txt")).orElseThrow();
+        assertThat(blobService.findPointer(buildPath("first.txt"))).contains(pointer);
+        assertThat(contentBlobRepository.findById(pointer.contentHash()).orElseThrow().getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    void uploadStream_reportsConflict() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "file.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        MockHttpServletResponse response = perform(put("/api/async/resource/stream")
+                .param("filename", "file.txt")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(content));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+    }
+
+    @Test
+    void download_sendsFileContent() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "file.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        MockHttpServletResponse response = perform(get("/api/async/resource/download").param("path", "file.txt"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void getDirectoryContent_listsFiles() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "file.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        MockHttpServletResponse response = perform(get("/api/async/directory"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).contains("\"file.txt\"");
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request.with(asUser1())).andReturn();
+        while (result.getRequest().isAsyncStarted())
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        return result.getResponse();
+    }
+}
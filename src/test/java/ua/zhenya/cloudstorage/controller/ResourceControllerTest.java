@@ -0,0 +1,177 @@
+package ua.zhenya.cloudstorage.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.properties.SearchProperties;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+class ResourceControllerTest extends BaseIntegrationTest {
+    private static final String FILENAME = "ranges.txt";
+    private static final String CONTENT = "0123456789abcdefghij";
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
+    @BeforeEach
+    void uploadFile() {
+        byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        resourceService.uploadResource(USER_1_ID, "", FILENAME, new ByteArrayInputStream(content), content.length, "text/plain");
+    }
+
+    @Test
+    void download_sendsWholeFile_withValidators() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotBlank();
+    }
+
+    @Test
+    void download_sendsSingleRange() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=2-5"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/20");
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void download_sendsSuffixRange() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=-4"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 16-19/20");
+        assertThat(response.getContentAsString()).isEqualTo("ghij");
+    }
+
+    @Test
+    void download_sendsMultipleRangesAsMultipart() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=0-1,10-12"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        String body = response.getContentAsString();
+        assertThat(body)
+                .contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n")
+                .contains("Content-Range: bytes 10-12/20\r\n\r\nabc\r\n");
+        assertThat(body.indexOf("bytes 0-1/20")).isLessThan(body.indexOf("bytes 10-12/20"));
+    }
+
+    @Test
+    void download_sendsRange_whenIfRangeMatches() throws Exception {
+        String etag = download(get("/api/resource/download").param("path", FILENAME)).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, etag));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(response.getContentAsString()).isEqualTo("0123");
+    }
+
+    @Test
+    void download_sendsWholeFile_whenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=0-3")
+                .header(HttpHeaders.IF_RANGE, "\"outdated\""));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void download_returnsNotModified_whenIfNoneMatchMatches() throws Exception {
+        String etag = download(get("/api/resource/download").param("path", FILENAME)).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.IF_NONE_MATCH, etag));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void download_returnsRangeNotSatisfiable_whenRangeStartsAfterEnd() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=100-200"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+    }
+
+    @Test
+    void download_sendsWholeFile_whenRangeIsMalformed() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "bytes=5-2"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void download_sendsWholeFile_whenRangeUnitIsUnknown() throws Exception {
+        MockHttpServletResponse response = download(get("/api/resource/download").param("path", FILENAME)
+                .header(HttpHeaders.RANGE, "items=0-1"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void asyncDownload_isDisabledByDefault() throws Exception {
+        MockHttpServletResponse response = download(get("/api/async/resource/download").param("path", FILENAME));
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_IMPLEMENTED.value());
+    }
+
+    @Test
+    void search_returnsAllMatches_unlessPaged() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "ranges-dir/");
+        int defaultLimit = searchProperties.getDefaultLimit();
+        searchProperties.setDefaultLimit(1);
+        try {
+            mockMvc.perform(get("/api/resource/search").param("query", "ranges").with(asUser1()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[?(@.name == 'ranges-dir')].type").value("DIRECTORY"));
+            mockMvc.perform(get("/api/resource/search").param("query", "ranges").param("page", "0").with(asUser1()))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(1));
+        } finally {
+            searchProperties.setDefaultLimit(defaultLimit);
+        }
+    }
+
+    private MockHttpServletResponse download(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request.with(asUser1())).andReturn();
+        if (result.getRequest().isAsyncStarted())
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        return result.getResponse();
+    }
+}
@@ -0,0 +1,16 @@
+package ua.zhenya.cloudstorage.controller;
+
+import org.junit.jupiter.api.Test;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UploadControllerTest extends BaseIntegrationTest {
+
+    @Test
+    void initiateDirectUpload_isDisabledByDefault() throws Exception {
+        mockMvc.perform(post("/api/uploads/direct").param("filename", "file.txt").with(asUser1()))
+                .andExpect(status().isNotImplemented());
+    }
+}
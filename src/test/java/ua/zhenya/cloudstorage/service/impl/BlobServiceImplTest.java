@@ -0,0 +1,153 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.config.DedupSchedulingConfig;
+import ua.zhenya.cloudstorage.model.ContentBlob;
+import ua.zhenya.cloudstorage.repository.ContentBlobRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.testdata.TestData;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobServiceImplTest extends BaseIntegrationTest {
+
+    @Autowired
+    private BlobService blobService;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void storeFile_shouldStoreDuplicateContentOnce() throws Exception {
+        MultipartFile file = TestData.getRandomMultipartFile();
+        String firstPath = buildPath("first.txt");
+        String secondPath = buildPath("second.txt");
+
+        BlobPointer first = blobService.storeFile(firstPath, file, file.getSize(), file.getContentType());
+        BlobPointer second = blobService.storeFile(secondPath, file, file.getSize(), file.getContentType());
+
+        assertEquals(first, second);
+        assertEquals(0, minioService.getObjectInfo(secondPath).size());
+        assertEquals(first.blobPath(), blobService.resolveContentPath(secondPath));
+        try (InputStream content = minioService.getObject(blobService.resolveContentPath(firstPath))) {
+            assertArrayEquals(file.getBytes(), content.readAllBytes());
+        }
+
+        ContentBlob blob = contentBlobRepository.findById(first.contentHash()).orElseThrow();
+        assertEquals(2, blob.getRefCount());
+        assertEquals(file.getSize(), blob.getSize());
+
+        blobService.releaseReferences(List.of(first.contentHash(), second.contentHash()));
+        assertEquals(0, contentBlobRepository.findById(first.contentHash()).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void storeFile_shouldDeduplicateStreamedContent_ofUnknownSize() throws Exception {
+        MultipartFile file = TestData.getRandomMultipartFile();
+        BlobPointer first = blobService.storeFile(buildPath("first.txt"), file, file.getSize(), file.getContentType());
+
+        BlobPointer second = blobService.storeFile(buildPath("second.txt"), new ByteArrayInputStream(file.getBytes()), -1,
+                file.getContentType());
+
+        assertEquals(first, second);
+        assertEquals(first.blobPath(), blobService.resolveContentPath(buildPath("second.txt")));
+        assertEquals(2, contentBlobRepository.findById(first.contentHash()).orElseThrow().getRefCount());
+        assertFalse(minioService.listObjects(BlobService.BLOB_PREFIX + "staging/", true).iterator().hasNext());
+    }
+
+    @Test
+    void storeContent_shouldStoreNewStreamedContentAsBlob() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+
+        BlobPointer pointer = blobService.storeContent(new ByteArrayInputStream(content), content.length, "text/plain");
+
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)), pointer.contentHash());
+        try (InputStream stored = minioService.getObject(pointer.blobPath())) {
+            assertArrayEquals(content, stored.readAllBytes());
+        }
+        assertEquals(1, contentBlobRepository.findById(pointer.contentHash()).orElseThrow().getRefCount());
+        assertFalse(minioService.listObjects(BlobService.BLOB_PREFIX + "staging/", true).iterator().hasNext());
+    }
+
+    @Test
+    void resolveContentPath_shouldReturnPath_whenObjectIsNotPointer() throws Exception {
+        String path = buildPath("plain/");
+        minioService.createDirectory(path);
+
+        assertEquals(path, blobService.resolveContentPath(path));
+    }
+
+    @Test
+    void findPointer_ignoresMetadataSetOnObject() throws Exception {
+        MultipartFile file = TestData.getRandomMultipartFile();
+        BlobPointer stored = blobService.storeFile(buildPath("owner.txt"), file, file.getSize(), file.getContentType());
+        String forgedPath = buildPath("forged.txt");
+        minioService.uploadObject(forgedPath, new ByteArrayInputStream(new byte[0]), 0, "text/plain",
+                Map.of("content-hash", stored.contentHash(), "content-size", String.valueOf(stored.size())));
+
+        assertTrue(blobService.findPointer(forgedPath).isEmpty());
+        assertEquals(forgedPath, blobService.resolveContentPath(forgedPath));
+    }
+
+    @Test
+    void storeFile_handsBackReference_whenTransactionRollsBack() throws Exception {
+        MultipartFile file = TestData.getRandomMultipartFile();
+        String path = buildPath("rolled-back.txt");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                blobService.storeFile(path, file, file.getSize(), file.getContentType());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            status.setRollbackOnly();
+        });
+
+        String contentHash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file.getBytes()));
+        assertEquals(0, contentBlobRepository.findById(contentHash).orElseThrow().getRefCount());
+        assertTrue(blobService.findPointer(path).isEmpty());
+    }
+
+    @Test
+    void pointers_followMovesAndReleaseOnRemoval() throws Exception {
+        MultipartFile file = TestData.getRandomMultipartFile();
+        String path = buildPath("dir/file.txt");
+        String movedPath = buildPath("moved/file.txt");
+        BlobPointer stored = blobService.storeFile(path, file, file.getSize(), file.getContentType());
+
+        blobService.movePointers(List.of(path), buildPath("dir/"), buildPath("moved/"));
+
+        assertTrue(blobService.findPointer(path).isEmpty());
+        assertEquals(Optional.of(stored), blobService.findPointer(movedPath));
+
+        blobService.removePointers(buildPath("moved/"));
+
+        assertTrue(blobService.findPointer(movedPath).isEmpty());
+        assertEquals(0, contentBlobRepository.findById(stored.contentHash()).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void sweepIsNotScheduled_whenDedupIsDisabled() {
+        assertEquals(0, applicationContext.getBeanNamesForType(DedupSchedulingConfig.class).length);
+    }
+}
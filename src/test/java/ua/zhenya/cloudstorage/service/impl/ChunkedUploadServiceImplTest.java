@@ -0,0 +1,291 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.DirectUploadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.service.ChunkedUploadService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+import ua.zhenya.cloudstorage.testdata.TestData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+import static ua.zhenya.cloudstorage.utils.Constants.UPLOAD_PREFIX;
+
+@TestPropertySource(properties = "storage.presigned-urls.enabled=true")
+class ChunkedUploadServiceImplTest extends BaseIntegrationTest {
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Test
+    void initiateUpload_createsEmptyUpload() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+
+        UploadSessionResponse status = chunkedUploadService.getUpload(USER_1_ID, upload.getId());
+        assertThat(status.getFilename()).isEqualTo("file.bin");
+        assertThat(status.getSize()).isEqualTo(100);
+        assertThat(status.getUploadedParts()).isEmpty();
+        assertThat(status.getMinPartSize()).isEqualTo(MIN_PART_SIZE);
+    }
+
+    @Test
+    void initiateUpload_rejectsExistingTarget() {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "file.bin", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        assertThatThrownBy(() -> chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+    }
+
+    @Test
+    void uploadPart_reportsPartsInOrder_andReplacesResentPart() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+
+        uploadPart(upload, 2, new byte[10]);
+        uploadPart(upload, 1, new byte[30]);
+        uploadPart(upload, 1, new byte[20]);
+
+        UploadSessionResponse status = chunkedUploadService.getUpload(USER_1_ID, upload.getId());
+        assertThat(status.getUploadedParts()).containsExactly(1, 2);
+        assertThat(status.getUploadedBytes()).isEqualTo(30);
+    }
+
+    @Test
+    void uploadPart_rejectsInvalidPartNumber() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+
+        assertThatThrownBy(() -> uploadPart(upload, 0, new byte[10]))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void completeUpload_assemblesPartsInPartNumberOrder() throws Exception {
+        byte[] first = new byte[MIN_PART_SIZE];
+        new Random().nextBytes(first);
+        byte[] second = TestData.getNewResourceContent();
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin",
+                first.length + second.length, "text/plain");
+        uploadPart(upload, 2, second);
+        uploadPart(upload, 1, first);
+
+        ResourceResponse resource = chunkedUploadService.completeUpload(USER_1_ID, upload.getId());
+
+        byte[] expected = new byte[first.length + second.length];
+        System.arraycopy(first, 0, expected, 0, first.length);
+        System.arraycopy(second, 0, expected, first.length, second.length);
+        assertThat(resource.getSize()).isEqualTo(expected.length);
+        assertThat(download("file.bin")).isEqualTo(expected);
+        assertThat(listUploadObjects()).isEmpty();
+        assertThatThrownBy(() -> chunkedUploadService.getUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void uploadPart_admitsConcurrentParts_onlyUpToDeclaredSize() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+
+        List<CompletableFuture<Boolean>> parts = IntStream.rangeClosed(1, 10)
+                .mapToObj(partNumber -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        uploadPart(upload, partNumber, new byte[20]);
+                        return true;
+                    } catch (CloudStorageException e) {
+                        return false;
+                    }
+                }))
+                .toList();
+
+        assertThat(parts.stream().filter(CompletableFuture::join).count()).isEqualTo(5);
+        assertThat(chunkedUploadService.getUpload(USER_1_ID, upload.getId()).getUploadedBytes()).isEqualTo(100);
+    }
+
+    @Test
+    void completeUpload_rejectsPartsBeyondDeclaredSize() throws Exception {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 10, null);
+        uploadPart(upload, 1, new byte[10]);
+        minioService.uploadObject(UPLOAD_PREFIX + upload.getId() + "/00001", new ByteArrayInputStream(new byte[20]), 20,
+                "application/octet-stream");
+
+        assertThatThrownBy(() -> chunkedUploadService.completeUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getMessage()).contains("declared upload size");
+                });
+    }
+
+    @Test
+    void completeUpload_rejectsMissingPart() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+        uploadPart(upload, 1, new byte[10]);
+        uploadPart(upload, 3, new byte[10]);
+
+        assertThatThrownBy(() -> chunkedUploadService.completeUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getMessage()).contains("Part 2");
+                });
+    }
+
+    @Test
+    void completeUpload_rejectsPartBelowMinimumSize() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+        uploadPart(upload, 1, new byte[10]);
+        uploadPart(upload, 2, new byte[10]);
+
+        assertThatThrownBy(() -> chunkedUploadService.completeUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getMessage()).contains("minimum part size");
+                });
+    }
+
+    @Test
+    void abortUpload_removesPartsAndUpload() throws Exception {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+        uploadPart(upload, 1, new byte[10]);
+
+        chunkedUploadService.abortUpload(USER_1_ID, upload.getId());
+
+        assertThat(listUploadObjects()).isEmpty();
+        assertThatThrownBy(() -> chunkedUploadService.getUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void sweepExpiredUploads_removesOnlyObjectsOfExpiredUploads() throws Exception {
+        UploadSessionResponse expired = chunkedUploadService.initiateUpload(USER_1_ID, "", "expired.bin", 100, null);
+        UploadSessionResponse active = chunkedUploadService.initiateUpload(USER_1_ID, "", "active.bin", 100, null);
+        uploadPart(expired, 1, new byte[10]);
+        uploadPart(expired, 2, new byte[10]);
+        uploadPart(active, 1, new byte[10]);
+        redisTemplate.delete("cloud-storage:uploads:" + expired.getId());
+
+        chunkedUploadService.sweepExpiredUploads();
+
+        assertThat(listUploadObjects()).containsExactly(UPLOAD_PREFIX + active.getId() + "/00001");
+        assertThat(chunkedUploadService.getUpload(USER_1_ID, active.getId()).getUploadedParts()).containsExactly(1);
+    }
+
+    @Test
+    void initiateDirectUpload_signsPolicyForStagingKeyOnly() {
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "file.txt", "text/plain");
+
+        assertThat(upload.getMethod()).isEqualTo("POST");
+        assertThat(upload.getFields())
+                .containsEntry("key", UPLOAD_PREFIX + upload.getId())
+                .containsKey("policy");
+        assertThat(upload.getUrl()).doesNotContain("file.txt");
+    }
+
+    @Test
+    void completeUpload_storesDirectlyUploadedFile() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "file.txt", "text/plain");
+        postToStorage(upload, content, Map.of());
+
+        ResourceResponse resource = chunkedUploadService.completeUpload(USER_1_ID, upload.getId());
+
+        assertThat(resource.getSize()).isEqualTo(content.length);
+        assertThat(download("file.txt")).isEqualTo(content);
+        assertThat(minioService.objectExists(UPLOAD_PREFIX + upload.getId())).isFalse();
+    }
+
+    @Test
+    void completeUpload_keepsStoredFile_whenPolicyIsReusedAfterwards() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "file.txt", "text/plain");
+        postToStorage(upload, content, Map.of());
+        chunkedUploadService.completeUpload(USER_1_ID, upload.getId());
+
+        postToStorage(upload, TestData.getNewResourceContent(), Map.of());
+
+        assertThat(download("file.txt")).isEqualTo(content);
+        assertThatThrownBy(() -> chunkedUploadService.completeUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void directUpload_rejectsUserMetadata() {
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "file.txt", "text/plain");
+
+        assertThatThrownBy(() -> postToStorage(upload, TestData.getNewResourceContent(), Map.of("x-amz-meta-content-hash", "forged")))
+                .isInstanceOf(HttpClientErrorException.class);
+        assertThat(minioService.objectExists(UPLOAD_PREFIX + upload.getId())).isFalse();
+    }
+
+    @Test
+    void completeUpload_rejectsDirectUploadWithoutFile() {
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "file.txt", "text/plain");
+
+        assertThatThrownBy(() -> chunkedUploadService.completeUpload(USER_1_ID, upload.getId()))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    private void uploadPart(UploadSessionResponse upload, int partNumber, byte[] content) {
+        chunkedUploadService.uploadPart(USER_1_ID, upload.getId(), partNumber, new ByteArrayInputStream(content), content.length);
+    }
+
+    private List<String> listUploadObjects() throws Exception {
+        List<String> objectNames = new ArrayList<>();
+        for (Result<Item> result : minioService.listObjects(UPLOAD_PREFIX, true))
+            objectNames.add(result.get().objectName());
+        return objectNames;
+    }
+
+    private void postToStorage(DirectUploadResponse upload, byte[] content, Map<String, String> extraFields) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        upload.getFields().forEach(form::add);
+        extraFields.forEach(form::add);
+        form.add("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "file.txt";
+            }
+        });
+
+        RestClient.create().post()
+                .uri(upload.getUrl())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(form)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private byte[] download(String path) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        resourceService.downloadResource(USER_1_ID, path).getContent().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,190 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.JobResponse;
+import ua.zhenya.cloudstorage.dto.JobStatus;
+import ua.zhenya.cloudstorage.dto.JobType;
+import ua.zhenya.cloudstorage.model.Job;
+import ua.zhenya.cloudstorage.service.JobService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+class JobServiceImplTest extends BaseIntegrationTest {
+    private static final String JOB_KEY = "cloud-storage:jobs:%s";
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void clearRedis() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void submitArchive_sizesJobInWorker_andReportsProgress() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "first.bin", 100);
+        upload("dir/", "second.bin", 50);
+
+        JobResponse submitted = jobService.submitArchive(USER_1_ID, "dir/");
+        assertThat(submitted.getStatus()).isEqualTo(JobStatus.PENDING);
+        assertThat(submitted.getTotalBytes()).isZero();
+
+        JobResponse job = awaitCompletion(submitted.getId());
+        assertThat(job.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(job.getTotalObjects()).isEqualTo(3);
+        assertThat(job.getTotalBytes()).isEqualTo(150);
+        assertThat(job.getBytesProcessed()).isEqualTo(150);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        jobService.downloadJobResult(USER_1_ID, job.getId()).getContent().writeTo(outputStream);
+        Map<String, byte[]> entries = extractZipContents(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(entries).containsOnlyKeys("first.bin", "second.bin");
+
+        jobService.deleteJob(USER_1_ID, job.getId());
+        assertThat(minioService.objectExists("jobs/%s.zip".formatted(job.getId()))).isFalse();
+    }
+
+    @Test
+    void submitArchive_countsArchivedContentAsJobTraffic() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "file.bin", 100);
+        double clientBytes = transferredBytes("client");
+        double jobBytes = transferredBytes("job");
+
+        JobResponse job = awaitCompletion(jobService.submitArchive(USER_1_ID, "dir/").getId());
+
+        assertThat(job.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(transferredBytes("job")).isGreaterThan(jobBytes);
+        assertThat(transferredBytes("client")).isEqualTo(clientBytes);
+        jobService.deleteJob(USER_1_ID, job.getId());
+    }
+
+    @Test
+    void submitMove_failsJob_whenSourceIsMissing() throws Exception {
+        JobResponse submitted = jobService.submitMove(USER_1_ID, "missing.bin", "moved.bin");
+
+        JobResponse job = awaitCompletion(submitted.getId());
+        assertThat(job.getStatus()).isEqualTo(JobStatus.FAILED);
+        assertThat(job.getError()).isEqualTo("Resource not found!");
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void submitDelete_countsProcessedObjects() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "first.bin", 10);
+        upload("dir/", "second.bin", 10);
+
+        JobResponse job = awaitCompletion(jobService.submitDelete(USER_1_ID, "dir/").getId());
+
+        assertThat(job.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(job.getTotalObjects()).isEqualTo(3);
+        assertThat(job.getObjectsProcessed()).isPositive();
+    }
+
+    @Test
+    void recoverStaleJobs_failsJobsWhoseLeaseExpired() throws Exception {
+        Instant lastHeartbeat = Instant.now().minus(Duration.ofHours(1));
+        Job job = Job.builder()
+                .id("stale")
+                .userId(USER_1_ID)
+                .type(JobType.DELETE)
+                .status(JobStatus.RUNNING)
+                .path("dir/")
+                .createdAt(lastHeartbeat)
+                .startedAt(lastHeartbeat)
+                .heartbeatAt(lastHeartbeat)
+                .build();
+        redisTemplate.opsForValue().set(JOB_KEY.formatted(job.getId()), objectMapper.writeValueAsString(job));
+
+        jobService.recoverStaleJobs();
+
+        JobResponse recovered = jobService.getJob(USER_1_ID, job.getId());
+        assertThat(recovered.getStatus()).isEqualTo(JobStatus.FAILED);
+        assertThat(recovered.getError()).isNotBlank();
+    }
+
+    @Test
+    void recoverStaleJobs_keepsJobsWithLiveLease() throws Exception {
+        Job job = Job.builder()
+                .id("live")
+                .userId(USER_1_ID)
+                .type(JobType.DELETE)
+                .status(JobStatus.RUNNING)
+                .path("dir/")
+                .createdAt(Instant.now())
+                .heartbeatAt(Instant.now())
+                .build();
+        redisTemplate.opsForValue().set(JOB_KEY.formatted(job.getId()), objectMapper.writeValueAsString(job));
+
+        jobService.recoverStaleJobs();
+
+        assertThat(jobService.getJob(USER_1_ID, job.getId()).getStatus()).isEqualTo(JobStatus.RUNNING);
+    }
+
+    @Test
+    void sweepExpiredResults_removesOnlyArchivesOfExpiredJobs() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "file.bin", 10);
+        JobResponse expired = awaitCompletion(jobService.submitArchive(USER_1_ID, "dir/").getId());
+        JobResponse active = awaitCompletion(jobService.submitArchive(USER_1_ID, "dir/").getId());
+        redisTemplate.delete(JOB_KEY.formatted(expired.getId()));
+
+        jobService.sweepExpiredResults();
+
+        assertThat(minioService.objectExists("jobs/%s.zip".formatted(expired.getId()))).isFalse();
+        assertThat(minioService.objectExists("jobs/%s.zip".formatted(active.getId()))).isTrue();
+        jobService.deleteJob(USER_1_ID, active.getId());
+    }
+
+    private JobResponse awaitCompletion(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (System.nanoTime() < deadline) {
+            JobResponse job = jobService.getJob(USER_1_ID, jobId);
+            if (job.getStatus() != JobStatus.PENDING && job.getStatus() != JobStatus.RUNNING)
+                return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish in time");
+    }
+
+    private double transferredBytes(String source) {
+        return meterRegistry.get("storage.transfer.bytes").tag("direction", "download").tag("source", source).counter().count();
+    }
+
+    private void upload(String path, String filename, int size) {
+        resourceService.uploadResource(USER_1_ID, path, filename, new ByteArrayInputStream(new byte[size]), size,
+                "application/octet-stream");
+    }
+}
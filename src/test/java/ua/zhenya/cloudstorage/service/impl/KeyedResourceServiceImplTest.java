@@ -0,0 +1,160 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceResponse;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+import ua.zhenya.cloudstorage.testdata.TestData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.Constants.OBJECT_KEY_PREFIX;
+
+@TestPropertySource(properties = "storage.object-keys.enabled=true")
+class KeyedResourceServiceImplTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceIndexService resourceIndexService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void uploadResource_storesContentUnderObjectKey() throws Exception {
+        byte[] content = upload("", "file.txt");
+
+        ResourceMetadata file = findFile("", "file.txt").orElseThrow();
+        assertThat(file.getObjectKey()).startsWith(OBJECT_KEY_PREFIX);
+        assertThat(minioService.objectExists(buildPath("file.txt"))).isFalse();
+        assertThat(readObject(file.getObjectKey())).isEqualTo(content);
+    }
+
+    @Test
+    void moveResource_keepsObjectKeys() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        byte[] content = upload("dir/", "file.txt");
+        String objectKey = findFile("dir/", "file.txt").orElseThrow().getObjectKey();
+
+        resourceService.moveResource(USER_1_ID, "dir/", "moved/");
+
+        assertThat(findFile("dir/", "file.txt")).isEmpty();
+        assertThat(findFile("moved/", "file.txt").orElseThrow().getObjectKey()).isEqualTo(objectKey);
+        assertThat(download("moved/file.txt")).isEqualTo(content);
+    }
+
+    @Test
+    void deleteResource_removesObjects() {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "first.txt");
+        upload("", "second.txt");
+        String firstKey = findFile("dir/", "first.txt").orElseThrow().getObjectKey();
+        String secondKey = findFile("", "second.txt").orElseThrow().getObjectKey();
+
+        resourceService.deleteResource(USER_1_ID, "dir/");
+        resourceService.deleteResource(USER_1_ID, "second.txt");
+
+        assertThat(findFile("dir/", "first.txt")).isEmpty();
+        assertThat(findFile("", "second.txt")).isEmpty();
+        assertThat(minioService.objectExists(firstKey)).isFalse();
+        assertThat(minioService.objectExists(secondKey)).isFalse();
+    }
+
+    @Test
+    void deleteResource_keepsObjects_whenTransactionRollsBack() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        byte[] content = upload("dir/", "file.txt");
+        String objectKey = findFile("dir/", "file.txt").orElseThrow().getObjectKey();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            resourceService.deleteResource(USER_1_ID, "dir/");
+            status.setRollbackOnly();
+        });
+
+        assertThat(findFile("dir/", "file.txt")).isPresent();
+        assertThat(readObject(objectKey)).isEqualTo(content);
+    }
+
+    @Test
+    void downloadResource_archivesKeyedFiles() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        resourceService.createDirectory(USER_1_ID, "dir/inner/");
+        byte[] first = upload("dir/", "first.txt");
+        byte[] second = upload("dir/inner/", "second.txt");
+
+        ResourceDownloadResponse archive = resourceService.downloadResource(USER_1_ID, "dir/");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        archive.getContent().writeTo(outputStream);
+        Map<String, byte[]> entries = extractZipContents(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        assertThat(entries).containsOnlyKeys("first.txt", "inner/second.txt");
+        assertThat(entries.get("first.txt")).isEqualTo(first);
+        assertThat(entries.get("inner/second.txt")).isEqualTo(second);
+    }
+
+    @Test
+    void getFileContent_readsRangeOfKeyedFile() throws Exception {
+        byte[] content = "0123456789".getBytes(StandardCharsets.UTF_8);
+        resourceService.uploadResource(USER_1_ID, "", "range.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+
+        try (InputStream range = resourceService.getFileContent(USER_1_ID, "range.txt", 2, 4L)) {
+            assertThat(new String(range.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("2345");
+        }
+    }
+
+    @Test
+    void rebuildIndex_mergesStorageListing_intoKeyedFiles() throws Exception {
+        byte[] content = upload("", "keyed.txt");
+        String objectKey = findFile("", "keyed.txt").orElseThrow().getObjectKey();
+        minioService.uploadObject(buildPath("plain.bin"), new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+
+        resourceIndexService.markStale(USER_1_ID);
+
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, ""))
+                .extracting(ResourceResponse::getName)
+                .containsExactlyInAnyOrder("keyed.txt", "plain.bin");
+        assertThat(findFile("", "keyed.txt").orElseThrow().getObjectKey()).isEqualTo(objectKey);
+        assertThat(findFile("", "plain.bin").orElseThrow().getObjectKey()).isNull();
+        assertThat(download("keyed.txt")).isEqualTo(content);
+    }
+
+    private byte[] upload(String path, String filename) {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, path, filename, new ByteArrayInputStream(content), content.length, "text/plain");
+        return content;
+    }
+
+    private byte[] download(String path) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        resourceService.downloadResource(USER_1_ID, path).getContent().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private byte[] readObject(String objectName) throws Exception {
+        try (InputStream inputStream = minioService.getObject(objectName)) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private Optional<ResourceMetadata> findFile(String parentPath, String name) {
+        return resourceMetadataRepository.findByUserIdAndParentPathAndNameAndType(USER_1_ID, USER_DIRECTORY_PATH + parentPath, name,
+                ResourceType.FILE);
+    }
+}
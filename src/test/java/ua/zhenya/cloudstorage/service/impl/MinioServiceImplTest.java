@@ -0,0 +1,70 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.RemoveObjectArgs;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.TestPropertySource;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+
+@TestPropertySource(properties = "storage.existence-cache.ttl=1h")
+class MinioServiceImplTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Value("${minio.bucket-name}")
+    private String bucketName;
+
+    @Test
+    void objectExists_answersFromCache_untilOwnWriteOrDeleteInvalidatesIt() throws Exception {
+        String path = buildPath("cached.bin");
+        assertThat(minioService.objectExists(path)).isFalse();
+
+        upload(path);
+        assertThat(minioService.objectExists(path)).isTrue();
+
+        minioClient.removeObject(RemoveObjectArgs.builder().bucket(bucketName).object(path).build());
+        assertThat(minioService.objectExists(path)).isTrue();
+
+        minioService.deleteObject(path);
+        assertThat(minioService.objectExists(path)).isFalse();
+    }
+
+    @Test
+    void deleteObjects_invalidatesEveryDeletedKey() throws Exception {
+        List<String> paths = List.of(buildPath("first.bin"), buildPath("second.bin"));
+        for (String path : paths) {
+            upload(path);
+            assertThat(minioService.objectExists(path)).isTrue();
+        }
+
+        assertThat(minioService.deleteObjects(paths)).isEmpty();
+
+        for (String path : paths)
+            assertThat(minioService.objectExists(path)).isFalse();
+    }
+
+    @Test
+    void deleteResource_invalidatesExistenceOfDeletedFile() throws Exception {
+        resourceService.uploadResource(USER_1_ID, "", "deleted.bin", new ByteArrayInputStream(new byte[10]), 10,
+                "application/octet-stream");
+        String path = buildPath("deleted.bin");
+        assertThat(minioService.objectExists(path)).isTrue();
+
+        resourceService.deleteResource(USER_1_ID, "deleted.bin");
+
+        assertThat(minioService.objectExists(path)).isFalse();
+    }
+
+    private void upload(String path) throws Exception {
+        minioService.uploadObject(path, new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+    }
+}
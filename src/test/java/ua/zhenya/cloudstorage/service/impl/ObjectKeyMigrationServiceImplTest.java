@@ -0,0 +1,136 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.multipart.MultipartFile;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.model.ResourceMetadata;
+import ua.zhenya.cloudstorage.repository.ContentBlobRepository;
+import ua.zhenya.cloudstorage.service.BlobService;
+import ua.zhenya.cloudstorage.service.BlobService.BlobPointer;
+import ua.zhenya.cloudstorage.service.ObjectKeyMigrationService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+import ua.zhenya.cloudstorage.testdata.TestData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_DIRECTORY_PATH;
+import static ua.zhenya.cloudstorage.utils.Constants.OBJECT_KEY_PREFIX;
+
+@TestPropertySource(properties = {
+        "storage.object-keys.enabled=true",
+        "storage.object-keys.orphan-grace-period=0s",
+        "storage.dedup.enabled=true"
+})
+class ObjectKeyMigrationServiceImplTest extends BaseIntegrationTest {
+
+    @Autowired
+    private ObjectKeyMigrationService objectKeyMigrationService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private BlobService blobService;
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Test
+    void migrateUser_movesFileStoredAtPathToObjectKey() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        minioService.createDirectory(buildPath("dir/"));
+        minioService.uploadObject(buildPath("dir/file.txt"), new ByteArrayInputStream(content), content.length, "text/plain");
+
+        objectKeyMigrationService.migrateUser(USER_1_ID);
+
+        ResourceMetadata file = findFile("dir/", "file.txt");
+        assertThat(file.getObjectKey()).startsWith(OBJECT_KEY_PREFIX);
+        assertThat(minioService.objectExists(buildPath("dir/file.txt"))).isFalse();
+        assertThat(minioService.objectExists(buildPath("dir/"))).isFalse();
+        assertThat(download("dir/file.txt")).isEqualTo(content);
+    }
+
+    @Test
+    void migrateUser_adoptsBlobOfDeduplicatedFile() throws Exception {
+        MultipartFile source = TestData.getRandomMultipartFile();
+        BlobPointer pointer = blobService.storeFile(buildPath("shared.txt"), source, source.getSize(), source.getContentType());
+
+        objectKeyMigrationService.migrateUser(USER_1_ID);
+
+        assertThat(findFile("", "shared.txt").getObjectKey()).isEqualTo(pointer.blobPath());
+        assertThat(minioService.objectExists(buildPath("shared.txt"))).isFalse();
+        assertThat(contentBlobRepository.findById(pointer.contentHash()).orElseThrow().getRefCount()).isEqualTo(1);
+        assertThat(download("shared.txt")).isEqualTo(source.getBytes());
+    }
+
+    @Test
+    void migrateUser_keepsFilesReadable_whenDirectoryIsMovedConcurrently() throws Exception {
+        Map<String, byte[]> contents = new HashMap<>();
+        minioService.createDirectory(buildPath("dir/"));
+        for (int i = 0; i < 20; i++) {
+            byte[] content = TestData.getNewResourceContent();
+            minioService.uploadObject(buildPath("dir/file-" + i + ".txt"), new ByteArrayInputStream(content), content.length, "text/plain");
+            contents.put("file-" + i + ".txt", content);
+        }
+        resourceService.getDirectoryContent(USER_1_ID, "dir/");
+
+        CompletableFuture<Void> migration = CompletableFuture.runAsync(() -> objectKeyMigrationService.migrateUser(USER_1_ID));
+        resourceService.moveResource(USER_1_ID, "dir/", "moved/");
+        migration.join();
+        objectKeyMigrationService.migrateUser(USER_1_ID);
+
+        for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+            assertThat(findFile("moved/", content.getKey()).getObjectKey()).startsWith(OBJECT_KEY_PREFIX);
+            assertThat(download("moved/" + content.getKey())).isEqualTo(content.getValue());
+        }
+        assertThat(listObjectKeys()).containsExactlyInAnyOrderElementsOf(resourceMetadataRepository.findAll().stream()
+                .map(ResourceMetadata::getObjectKey)
+                .filter(objectKey -> objectKey != null && objectKey.startsWith(OBJECT_KEY_PREFIX))
+                .toList());
+    }
+
+    @Test
+    void sweepOrphanedObjects_removesOnlyUnreferencedObjects() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "file.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+        String objectKey = findFile("", "file.txt").getObjectKey();
+        String orphan = OBJECT_KEY_PREFIX + "orphan";
+        minioService.uploadObject(orphan, new ByteArrayInputStream(content), content.length, "text/plain");
+
+        objectKeyMigrationService.sweepOrphanedObjects();
+
+        assertThat(minioService.objectExists(orphan)).isFalse();
+        assertThat(minioService.objectExists(objectKey)).isTrue();
+    }
+
+    private byte[] download(String path) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        resourceService.downloadResource(USER_1_ID, path).getContent().writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private List<String> listObjectKeys() throws Exception {
+        List<String> objectKeys = new ArrayList<>();
+        for (Result<Item> result : minioService.listObjects(OBJECT_KEY_PREFIX, true))
+            objectKeys.add(result.get().objectName());
+        return objectKeys;
+    }
+
+    private ResourceMetadata findFile(String parentPath, String name) {
+        return resourceMetadataRepository.findByUserIdAndParentPathAndNameAndType(USER_1_ID, USER_DIRECTORY_PATH + parentPath, name,
+                ResourceType.FILE).orElseThrow();
+    }
+}
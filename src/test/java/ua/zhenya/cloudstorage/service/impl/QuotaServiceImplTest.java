@@ -0,0 +1,182 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.DirectUploadResponse;
+import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.service.ChunkedUploadService;
+import ua.zhenya.cloudstorage.service.QuotaService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_DIRECTORY_PATH;
+
+@TestPropertySource(properties = {
+        "storage.quota.enabled=true",
+        "storage.quota.default-limit=1KB",
+        "storage.presigned-urls.enabled=true"
+})
+class QuotaServiceImplTest extends BaseIntegrationTest {
+    private static final long LIMIT = 1024;
+
+    @Autowired
+    private QuotaService quotaService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void clearRedis() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void uploadResource_admitsFileWithinQuota_andSettlesUsage() {
+        upload("file.txt", 100);
+
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT - 100);
+    }
+
+    @Test
+    void uploadResource_rejectsFileBeyondQuota() {
+        assertThatThrownBy(() -> upload("file.txt", LIMIT + 1))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+
+        assertThat(resourceMetadataRepository.findByUserIdAndParentPathAndNameAndType(USER_1_ID, USER_DIRECTORY_PATH, "file.txt",
+                ResourceType.FILE)).isEmpty();
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT);
+    }
+
+    @Test
+    void reserve_settlesBytesOnCommit_andReleasesThemOnRollback() {
+        transactionTemplate.executeWithoutResult(status -> {
+            quotaService.reserve(USER_1_ID, 500);
+            status.setRollbackOnly();
+        });
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT);
+
+        transactionTemplate.executeWithoutResult(status -> quotaService.reserve(USER_1_ID, 500));
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT - 500);
+    }
+
+    @Test
+    void hold_givesBytesBack_whenItExpires() throws Exception {
+        quotaService.hold(USER_1_ID, "upload", 500, Duration.ofMillis(200));
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT - 500);
+
+        Thread.sleep(300);
+
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT);
+    }
+
+    @Test
+    void initiateUpload_holdsDeclaredSize_untilAborted() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "first.bin", 600, null);
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT - 600);
+
+        assertThatThrownBy(() -> chunkedUploadService.initiateUpload(USER_1_ID, "", "second.bin", 600, null))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+
+        chunkedUploadService.abortUpload(USER_1_ID, upload.getId());
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT);
+    }
+
+    @Test
+    void uploadPart_rejectsPartsBeyondDeclaredSize() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 10, null);
+
+        assertThatThrownBy(() -> chunkedUploadService.uploadPart(USER_1_ID, upload.getId(), 1, new ByteArrayInputStream(new byte[20]), 20))
+                .isInstanceOfSatisfying(CloudStorageException.class, e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+
+    @Test
+    void uploadPart_isAdmitted_whenHoldTakesMostOfQuota() throws Exception {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", LIMIT - 10, null);
+
+        mockMvc.perform(put("/api/uploads/{id}/parts/{partNumber}", upload.getId(), 1)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[(int) (LIMIT - 10)])
+                        .with(asUser1()))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void completeUpload_swapsHoldForStoredFile() {
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "file.bin", 100, null);
+        chunkedUploadService.uploadPart(USER_1_ID, upload.getId(), 1, new ByteArrayInputStream(new byte[100]), 100);
+
+        chunkedUploadService.completeUpload(USER_1_ID, upload.getId());
+
+        assertThat(quotaService.getAvailable(USER_1_ID)).isEqualTo(LIMIT - 100);
+    }
+
+    @Test
+    void directUpload_acceptsOnlyFilesWithinRemainingQuota() {
+        upload("file.txt", 100);
+        DirectUploadResponse upload = chunkedUploadService.initiateDirectUpload(USER_1_ID, "", "direct.bin", null);
+
+        assertThatThrownBy(() -> postToStorage(upload, new byte[(int) (LIMIT - 100 + 1)]))
+                .isInstanceOf(HttpClientErrorException.class);
+
+        postToStorage(upload, new byte[(int) (LIMIT - 100)]);
+        chunkedUploadService.completeUpload(USER_1_ID, upload.getId());
+        assertThat(quotaService.getAvailable(USER_1_ID)).isZero();
+    }
+
+    private void upload(String filename, long size) {
+        resourceService.uploadResource(USER_1_ID, "", filename, new ByteArrayInputStream(new byte[(int) size]), size,
+                "application/octet-stream");
+    }
+
+    private void postToStorage(DirectUploadResponse upload, byte[] content) {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        upload.getFields().forEach(form::add);
+        form.add("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "direct.bin";
+            }
+        });
+
+        RestClient.create().post()
+                .uri(upload.getUrl())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(form)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
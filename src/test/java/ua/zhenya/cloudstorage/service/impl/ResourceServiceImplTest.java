@@ -1,31 +1,60 @@
 package ua.zhenya.cloudstorage.service.impl;
 
+import io.minio.Result;
 import io.minio.errors.*;
+import io.minio.messages.DeleteError;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import ua.zhenya.cloudstorage.BaseIntegrationTest;
 import ua.zhenya.cloudstorage.dto.ResourceDownloadResponse;
+import ua.zhenya.cloudstorage.dto.ResourcePageResponse;
 import ua.zhenya.cloudstorage.dto.ResourceResponse;
 import ua.zhenya.cloudstorage.dto.ResourceType;
+import ua.zhenya.cloudstorage.dto.UploadFailure;
+import ua.zhenya.cloudstorage.dto.UploadResultResponse;
 import ua.zhenya.cloudstorage.exception.CloudStorageException;
+import ua.zhenya.cloudstorage.properties.DeleteProperties;
+import ua.zhenya.cloudstorage.properties.DownloadProperties;
+import ua.zhenya.cloudstorage.properties.SearchProperties;
 import ua.zhenya.cloudstorage.service.MinioService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
 import ua.zhenya.cloudstorage.service.ResourceService;
 import ua.zhenya.cloudstorage.testdata.TestData;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static ua.zhenya.cloudstorage.testdata.TestConstants.*;
+import static ua.zhenya.cloudstorage.utils.Constants.DIRECTORY_LISTING_CACHE;
 import static ua.zhenya.cloudstorage.utils.PathUtils.*;
 
 class ResourceServiceImplTest extends BaseIntegrationTest {
@@ -34,8 +63,20 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
     private ResourceService resourceService;
 
     @Autowired
+    private ResourceIndexService resourceIndexService;
+
+    @MockitoSpyBean
     private MinioService minioService;
 
+    @Autowired
+    private DownloadProperties downloadProperties;
+
+    @Autowired
+    private DeleteProperties deleteProperties;
+
+    @Autowired
+    private SearchProperties searchProperties;
+
     @ParameterizedTest
     @EmptySource
     @CsvSource({
@@ -46,7 +87,7 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         MultipartFile multipartFile = TestData.getRandomMultipartFile();
         String relativePath = buildPath(path);
         minioService.createDirectory(relativePath);
-        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, path, List.of(multipartFile));
+        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, path, List.of(multipartFile)).getUploaded();
 
         assertEquals(1, resourceResponses.size());
         assertEquals(path, resourceResponses.getFirst().getPath());
@@ -65,7 +106,7 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
                 TestData.getRandomMultipartFile()
         );
 
-        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, "", resources);
+        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, "", resources).getUploaded();
 
         assertEquals(2, resourceResponses.size());
         assertElementsInOrder(resourceResponses,
@@ -92,7 +133,7 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
                 TestData.getRandomMultipartFile(pathInFilename2)
         );
 
-        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, "", resources);
+        List<ResourceResponse> resourceResponses = resourceService.uploadResources(USER_1_ID, "", resources).getUploaded();
 
         assertElementsInOrder(resourceResponses,
                 ResourceResponse::getName, resources,
@@ -122,6 +163,29 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         assertThrows(CloudStorageException.class, () -> resourceService.uploadResources(USER_1_ID, "", resources));
     }
 
+    @Test
+    void uploadResources_reportsFailedFile_andKeepsTheOthers() {
+        MultipartFile uploaded = TestData.getRandomMultipartFile();
+        MultipartFile unreadable = new MockMultipartFile("file", "unreadable.txt", "text/plain", TestData.getNewResourceContent()) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        UploadResultResponse result = resourceService.uploadResources(USER_1_ID, "", List.of(uploaded, unreadable));
+
+        assertThat(result.getUploaded()).extracting(ResourceResponse::getName).containsExactly(uploaded.getOriginalFilename());
+        assertThat(result.getFailed()).extracting(UploadFailure::getName).containsExactly("unreadable.txt");
+        assertThat(result.getFailed().getFirst().getError()).isNotBlank();
+
+        assertTrue(minioService.objectExists(buildPath(uploaded.getOriginalFilename())));
+        assertFalse(minioService.objectExists(buildPath("unreadable.txt")));
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, ""))
+                .extracting(ResourceResponse::getName)
+                .containsExactly(uploaded.getOriginalFilename());
+    }
+
     @Test
     void uploadResources_throws_whenTargetDirectoryNotExists() {
         List<MultipartFile> resources = List.of(
@@ -130,6 +194,18 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         assertThrows(CloudStorageException.class, () -> resourceService.uploadResources(USER_1_ID, "unknownFolder/", resources));
     }
 
+    @Test
+    void uploadResource_shouldStreamContentOfUnknownLength() throws Exception {
+        byte[] content = "streamed content".getBytes();
+        ResourceResponse resourceResponse = resourceService.uploadResource(USER_1_ID, "", "streamed.txt",
+                new ByteArrayInputStream(content), -1, "text/plain");
+
+        assertEquals("streamed.txt", resourceResponse.getName());
+        assertEquals(content.length, resourceResponse.getSize());
+        assertEquals(content.length, minioService.getObjectInfo(buildPath("streamed.txt")).size());
+        assertEquals(content.length, resourceService.getResourceInfo(USER_1_ID, "streamed.txt").getSize());
+    }
+
     @Test
     void getResourceInfo_shouldReturnFileInfo_whenResourceExists() throws Exception {
         String path = "myfolder/images/";
@@ -239,6 +315,48 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         checkObjectsExistence(false, absolutePath, multipartFiles);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void deleteResource_deletesDirectoryInBatches_andReportsObjectsThatCannotBeDeleted() throws Exception {
+        String directoryPath = buildPath("batched/");
+        String failingPath = directoryPath + "c.bin";
+        minioService.createDirectory(directoryPath);
+        for (String name : List.of("a.bin", "b.bin", "c.bin", "d.bin", "e.bin"))
+            minioService.uploadObject(directoryPath + name, new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+        DeleteError error = mock(DeleteError.class);
+        when(error.objectName()).thenReturn(failingPath);
+        when(error.code()).thenReturn("AccessDenied");
+        when(error.message()).thenReturn("Access Denied.");
+        doAnswer(invocation -> {
+            List<String> batch = invocation.getArgument(0);
+            if (!batch.contains(failingPath))
+                return invocation.callRealMethod();
+            List<Result<DeleteError>> results = new ArrayList<>(minioService.deleteObjects(
+                    batch.stream().filter(objectName -> !objectName.equals(failingPath)).toList()));
+            results.add(new Result<>(error));
+            return results;
+        }).when(minioService).deleteObjects(anyList());
+        int batchSize = deleteProperties.getBatchSize();
+        deleteProperties.setBatchSize(2);
+
+        try {
+            assertThatThrownBy(() -> resourceService.deleteResource(USER_1_ID, "batched/"))
+                    .isInstanceOfSatisfying(CloudStorageException.class, e -> {
+                        assertThat(e.getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+                        assertThat(e.getMessage()).contains("Failed to delete 1 object(s)").contains("batched/c.bin");
+                    });
+        } finally {
+            deleteProperties.setBatchSize(batchSize);
+        }
+
+        ArgumentCaptor<List<String>> batches = ArgumentCaptor.forClass(List.class);
+        verify(minioService, atLeastOnce()).deleteObjects(batches.capture());
+        assertThat(batches.getAllValues()).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        assertTrue(minioService.objectExists(failingPath));
+        assertFalse(minioService.objectExists(directoryPath + "a.bin"));
+        assertFalse(minioService.objectExists(directoryPath + "e.bin"));
+    }
+
     @ParameterizedTest
     @EmptySource
     @NullSource
@@ -406,6 +524,25 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         assertThrows(CloudStorageException.class, () -> resourceService.moveResource(USER_1_ID, from, to));
     }
 
+    @Test
+    void moveResource_removesCopiedTargets_andKeepsSources_whenCopyFails() throws Exception {
+        String sourcePath = buildPath("source/");
+        String targetPath = buildPath("target/");
+        minioService.createDirectory(sourcePath);
+        for (String name : List.of("a.bin", "b.bin", "c.bin"))
+            minioService.uploadObject(sourcePath + name, new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+        doThrow(new IOException("storage unavailable")).when(minioService).copyObject(endsWith("source/b.bin"), anyString());
+
+        assertThatThrownBy(() -> resourceService.moveResource(USER_1_ID, "source/", "target/"))
+                .isInstanceOfSatisfying(CloudStorageException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        for (String name : List.of("a.bin", "b.bin", "c.bin")) {
+            assertTrue(minioService.objectExists(sourcePath + name));
+            assertFalse(minioService.objectExists(targetPath + name));
+        }
+    }
+
     @Test
     public void getDirectoryContext_returnsEmptyList_whenDirectoryIsEmpty() throws ServerException, InsufficientDataException, ErrorResponseException, IOException, NoSuchAlgorithmException, InvalidKeyException, InvalidResponseException, XmlParserException, InternalException {
         String path = "folder/";
@@ -422,6 +559,47 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         assertThrows(CloudStorageException.class, () -> resourceService.getDirectoryContent(USER_1_ID, "folder/"));
     }
 
+    @Test
+    void uploadAndDelete_evictOnlyListingsTheyChange() {
+        resourceService.createDirectory(USER_1_ID, "changed/");
+        resourceService.createDirectory(USER_1_ID, "untouched/");
+        upload("untouched/", "kept.bin");
+        resourceService.getDirectoryContent(USER_1_ID, "changed/");
+        resourceService.getDirectoryContent(USER_1_ID, "untouched/");
+        Cache cache = cacheManager.getCache(DIRECTORY_LISTING_CACHE);
+
+        upload("changed/", "added.bin");
+
+        assertThat(cache.get(buildPath("changed/"))).isNull();
+        assertThat(cache.get(buildPath("untouched/"))).isNotNull();
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, "changed/"))
+                .extracting(ResourceResponse::getName)
+                .containsExactly("added.bin");
+
+        resourceService.deleteResource(USER_1_ID, "changed/added.bin");
+
+        assertThat(cache.get(buildPath("changed/"))).isNull();
+        assertThat(cache.get(buildPath("untouched/"))).isNotNull();
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, "changed/")).isEmpty();
+    }
+
+    @Test
+    void getDirectoryContent_rebuildsStaleIndex_fromStorage() throws Exception {
+        byte[] content = TestData.getNewResourceContent();
+        resourceService.uploadResource(USER_1_ID, "", "indexed.txt", new ByteArrayInputStream(content), content.length, "text/plain");
+        minioService.uploadObject(buildPath("dir/unindexed.bin"), new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+
+        resourceIndexService.markStale(USER_1_ID);
+
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, ""))
+                .extracting(ResourceResponse::getName)
+                .containsExactlyInAnyOrder("indexed.txt", "dir/");
+        assertThat(resourceService.getDirectoryContent(USER_1_ID, "dir/"))
+                .extracting(ResourceResponse::getName, ResourceResponse::getSize)
+                .containsExactly(tuple("unindexed.bin", 10L));
+        assertTrue(resourceIndexService.isIndexed(USER_1_ID));
+    }
+
     @ParameterizedTest
     @EmptySource
     @CsvSource({
@@ -445,6 +623,34 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
                 .contains(multipartFiles[0].getOriginalFilename(), multipartFiles[1].getOriginalFilename(), "newFolder/");
     }
 
+    @Test
+    public void getDirectoryContentPage_shouldReturnAllEntriesAcrossPages() throws Exception {
+        String path = "folder/";
+        MultipartFile[] multipartFiles = new MultipartFile[]{
+                TestData.getRandomMultipartFile(),
+                TestData.getRandomMultipartFile(),
+                TestData.getRandomMultipartFile(),
+                TestData.getRandomMultipartFile("newFolder/"),
+        };
+        String fullPath = buildPath(path);
+        minioService.createDirectory(fullPath);
+        uploadContentToDirectory(fullPath, multipartFiles);
+
+        List<String> names = new ArrayList<>();
+        String continuationToken = null;
+        int pages = 0;
+        do {
+            ResourcePageResponse page = resourceService.getDirectoryContentPage(USER_1_ID, path, continuationToken, 2, Sort.Direction.ASC);
+            page.getItems().forEach(item -> names.add(item.getName()));
+            continuationToken = page.getContinuationToken();
+            pages++;
+        } while (continuationToken != null);
+
+        assertEquals(2, pages);
+        assertThat(names).containsExactlyInAnyOrder(multipartFiles[0].getOriginalFilename(), multipartFiles[1].getOriginalFilename(),
+                multipartFiles[2].getOriginalFilename(), "newFolder/");
+    }
+
     @Test
     public void searchResources_shouldReturnListOfFoundResults() throws Exception {
         String path = "folder/";
@@ -469,6 +675,42 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         );
     }
 
+    @Test
+    void searchResources_pagesMatchesInNameOrder() throws Exception {
+        for (String name : List.of("report-3.txt", "report-1.txt", "other.txt", "report-5.txt", "report-2.txt", "report-4.txt"))
+            minioService.uploadObject(buildPath(name), new ByteArrayInputStream(new byte[10]), 10, "text/plain");
+        int maxLimit = searchProperties.getMaxLimit();
+        searchProperties.setMaxLimit(2);
+
+        try {
+            assertThat(resourceService.searchResources(USER_1_ID, "report", 0, 2))
+                    .extracting(ResourceResponse::getName)
+                    .containsExactly("report-1.txt", "report-2.txt");
+            assertThat(resourceService.searchResources(USER_1_ID, "report", 2, 2))
+                    .extracting(ResourceResponse::getName)
+                    .containsExactly("report-5.txt");
+            assertThat(resourceService.searchResources(USER_1_ID, "report", 0, 10)).hasSize(2);
+            assertThat(resourceService.streamSearchResults(USER_1_ID, "report"))
+                    .extracting(ResourceResponse::getName)
+                    .containsExactly("report-1.txt", "report-2.txt", "report-3.txt", "report-4.txt", "report-5.txt");
+        } finally {
+            searchProperties.setMaxLimit(maxLimit);
+        }
+    }
+
+    @Test
+    void searchResources_matchesLikeWildcardsLiterally() throws Exception {
+        for (String name : List.of("100%.txt", "1000.txt", "a_b.txt", "axb.txt"))
+            minioService.uploadObject(buildPath(name), new ByteArrayInputStream(new byte[10]), 10, "text/plain");
+
+        assertThat(resourceService.searchResources(USER_1_ID, "100%"))
+                .extracting(ResourceResponse::getName)
+                .containsExactly("100%.txt");
+        assertThat(resourceService.searchResources(USER_1_ID, "a_b"))
+                .extracting(ResourceResponse::getName)
+                .containsExactly("a_b.txt");
+    }
+
     @ParameterizedTest
     @EmptySource
     @NullSource
@@ -492,7 +734,9 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
 
         assertNotNull(downloadedResource);
         assertNotNull(downloadedResource.getContent());
-        byte[] actualBytes = downloadedResource.getContent().getInputStream().readAllBytes();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        downloadedResource.getContent().writeTo(outputStream);
+        byte[] actualBytes = outputStream.toByteArray();
 
         assertThat(actualBytes).isEqualTo(expectedBytes);
     }
@@ -515,7 +759,9 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         ResourceDownloadResponse downloadedZipResponse = resourceService.downloadResource(USER_1_ID, directoryPath);
         assertNotNull(downloadedZipResponse);
         assertNotNull(downloadedZipResponse.getContent());
-        InputStream downloadedZip = downloadedZipResponse.getContent().getInputStream();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        downloadedZipResponse.getContent().writeTo(outputStream);
+        InputStream downloadedZip = new ByteArrayInputStream(outputStream.toByteArray());
 
         Map<String, byte[]> extractedFiles = extractZipContents(downloadedZip);
 
@@ -526,6 +772,50 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
         }
     }
 
+    @Test
+    void downloadResource_writesZipEntriesInListingOrder_whileLaterObjectsArePrefetched() throws Exception {
+        String directoryPath = buildPath("archive/");
+        minioService.createDirectory(directoryPath);
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (String name : List.of("a.bin", "b.bin", "c.bin", "d.bin", "e.bin")) {
+            byte[] content = new byte[name.equals("c.bin") ? 100 : 10];
+            new Random().nextBytes(content);
+            files.put(name, content);
+            minioService.uploadObject(directoryPath + name, new ByteArrayInputStream(content), content.length, "application/octet-stream");
+        }
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return invocation.callRealMethod();
+        }).when(minioService).getObject(endsWith("a.bin"));
+        DataSize memoryBudget = downloadProperties.getPrefetchMemoryBudget();
+        downloadProperties.setPrefetchMemoryBudget(DataSize.ofBytes(50L * downloadProperties.getPrefetchDepth()));
+
+        Map<String, byte[]> entries;
+        try {
+            entries = readZipEntriesInOrder(resourceService.downloadResource(USER_1_ID, "archive/"));
+        } finally {
+            downloadProperties.setPrefetchMemoryBudget(memoryBudget);
+        }
+
+        assertThat(entries.keySet()).containsExactlyElementsOf(files.keySet());
+        files.forEach((name, content) -> assertThat(entries.get(name)).isEqualTo(content));
+    }
+
+    @Test
+    void downloadResource_failsArchive_whenPrefetchedObjectCannotBeRead() throws Exception {
+        String directoryPath = buildPath("archive/");
+        minioService.createDirectory(directoryPath);
+        for (String name : List.of("a.bin", "b.bin", "c.bin"))
+            minioService.uploadObject(directoryPath + name, new ByteArrayInputStream(new byte[10]), 10, "application/octet-stream");
+        doThrow(new IOException("storage unavailable")).when(minioService).getObject(endsWith("b.bin"));
+
+        ResourceDownloadResponse response = resourceService.downloadResource(USER_1_ID, "archive/");
+
+        assertThatThrownBy(() -> response.getContent().writeTo(new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasRootCauseMessage("storage unavailable");
+    }
+
     @ParameterizedTest
     @NullSource
     @EmptySource
@@ -538,4 +828,21 @@ class ResourceServiceImplTest extends BaseIntegrationTest {
     void downloadResource_shouldThrowException_whenResourceNotFound() {
         assertThrows(CloudStorageException.class, () -> resourceService.downloadResource(USER_1_ID, "unknown/resource/"));
     }
+
+    private static Map<String, byte[]> readZipEntriesInOrder(ResourceDownloadResponse response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getContent().writeTo(outputStream);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null)
+                entries.put(entry.getName(), zis.readAllBytes());
+        }
+        return entries;
+    }
+
+    private void upload(String path, String filename) {
+        resourceService.uploadResource(USER_1_ID, path, filename, new ByteArrayInputStream(new byte[10]), 10,
+                "application/octet-stream");
+    }
 }
@@ -0,0 +1,161 @@
+package ua.zhenya.cloudstorage.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.zhenya.cloudstorage.BaseIntegrationTest;
+import ua.zhenya.cloudstorage.dto.StorageUsageResponse;
+import ua.zhenya.cloudstorage.dto.UploadSessionResponse;
+import ua.zhenya.cloudstorage.properties.UsageProperties;
+import ua.zhenya.cloudstorage.service.ChunkedUploadService;
+import ua.zhenya.cloudstorage.service.ResourceIndexService;
+import ua.zhenya.cloudstorage.service.ResourceService;
+import ua.zhenya.cloudstorage.service.UsageReconciliationService;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_1_ID;
+import static ua.zhenya.cloudstorage.testdata.TestConstants.USER_DIRECTORY_PATH;
+
+@TestPropertySource(properties = "storage.usage.reconcile-grace-period=0s")
+class UsageReconciliationServiceImplTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UsageReconciliationService usageReconciliationService;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceIndexService resourceIndexService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private UsageProperties usageProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void resetGracePeriod() {
+        usageProperties.setReconcileGracePeriod(Duration.ZERO);
+    }
+
+    @Test
+    void usage_followsUploadsMovesAndDeletes() {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "first.bin", 100);
+        upload("", "second.bin", 50);
+        assertUsage("", 150, 2);
+        assertUsage("dir/", 100, 1);
+
+        resourceService.moveResource(USER_1_ID, "second.bin", "dir/second.bin");
+        assertUsage("", 150, 2);
+        assertUsage("dir/", 150, 2);
+
+        resourceService.deleteResource(USER_1_ID, "dir/first.bin");
+        assertUsage("", 50, 1);
+        assertUsage("dir/", 50, 1);
+    }
+
+    @Test
+    void usage_staysExact_underConcurrentUploads() {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+
+        List<CompletableFuture<Void>> uploads = IntStream.range(0, 10)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> upload("dir/", "file-" + i + ".bin", 10)))
+                .toList();
+        uploads.forEach(CompletableFuture::join);
+
+        assertUsage("", 100, 10);
+        assertUsage("dir/", 100, 10);
+    }
+
+    @Test
+    void reconcileUser_recomputesDriftedCounters() {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "file.bin", 100);
+        transactionTemplate.executeWithoutResult(status ->
+                resourceMetadataRepository.adjustUsage(USER_1_ID, USER_DIRECTORY_PATH, "dir", 1000, 5));
+
+        usageReconciliationService.reconcileUser(USER_1_ID);
+
+        assertUsage("", 100, 1);
+        assertUsage("dir/", 100, 1);
+        assertThat(resourceIndexService.isIndexed(USER_1_ID)).isTrue();
+    }
+
+    @Test
+    void reconcileUser_marksIndexStale_whenStorageHasUnindexedFile() throws Exception {
+        upload("", "file.bin", 100);
+        minioService.uploadObject(buildPath("extra.bin"), new ByteArrayInputStream(new byte[30]), 30, "application/octet-stream");
+
+        usageReconciliationService.reconcileUser(USER_1_ID);
+
+        assertThat(resourceIndexService.isIndexed(USER_1_ID)).isFalse();
+        assertUsage("", 130, 2);
+    }
+
+    @Test
+    void reconcileUser_ignoresFilesWithinGracePeriod() throws Exception {
+        upload("", "file.bin", 100);
+        usageProperties.setReconcileGracePeriod(Duration.ofHours(1));
+        minioService.uploadObject(buildPath("in-flight.bin"), new ByteArrayInputStream(new byte[30]), 30, "application/octet-stream");
+
+        usageReconciliationService.reconcileUser(USER_1_ID);
+
+        assertThat(resourceIndexService.isIndexed(USER_1_ID)).isTrue();
+        assertUsage("", 100, 1);
+    }
+
+    @Test
+    void reconcileUser_ignoresStagedUploads() {
+        upload("", "file.bin", 100);
+        UploadSessionResponse upload = chunkedUploadService.initiateUpload(USER_1_ID, "", "staged.bin", 50, null);
+        chunkedUploadService.uploadPart(USER_1_ID, upload.getId(), 1, new ByteArrayInputStream(new byte[50]), 50);
+
+        usageReconciliationService.reconcileUser(USER_1_ID);
+
+        assertThat(resourceIndexService.isIndexed(USER_1_ID)).isTrue();
+        assertUsage("", 100, 1);
+    }
+
+    @Test
+    void getUsage_returnsCountersOfDirectory() throws Exception {
+        resourceService.createDirectory(USER_1_ID, "dir/");
+        upload("dir/", "file.bin", 100);
+
+        mockMvc.perform(get("/api/user/usage").param("path", "dir/").with(asUser1()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.path").value("dir/"))
+                .andExpect(jsonPath("$.totalSize").value(100))
+                .andExpect(jsonPath("$.fileCount").value(1));
+        mockMvc.perform(get("/api/user/usage").param("path", "missing/").with(asUser1()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/user/usage").param("path", "dir/file.bin").with(asUser1()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void upload(String path, String filename, int size) {
+        resourceService.uploadResource(USER_1_ID, path, filename, new ByteArrayInputStream(new byte[size]), size,
+                "application/octet-stream");
+    }
+
+    private void assertUsage(String path, long totalSize, long fileCount) {
+        StorageUsageResponse usage = resourceService.getUsage(USER_1_ID, path);
+        assertThat(usage.getTotalSize()).isEqualTo(totalSize);
+        assertThat(usage.getFileCount()).isEqualTo(fileCount);
+    }
+}
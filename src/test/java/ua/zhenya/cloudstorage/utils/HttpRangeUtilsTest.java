@@ -0,0 +1,71 @@
+package ua.zhenya.cloudstorage.utils;
+
+import org.junit.jupiter.api.Test;
+import ua.zhenya.cloudstorage.utils.HttpRangeUtils.ByteRange;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpRangeUtilsTest {
+    private static final String ETAG = "\"abc\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    @Test
+    void resolveRanges_resolvesSingleSuffixAndOpenRanges() {
+        assertThat(HttpRangeUtils.resolveRanges("bytes=2-5", 20)).containsExactly(new ByteRange(2, 5));
+        assertThat(HttpRangeUtils.resolveRanges("bytes=-4", 20)).containsExactly(new ByteRange(16, 19));
+        assertThat(HttpRangeUtils.resolveRanges("bytes=15-", 20)).containsExactly(new ByteRange(15, 19));
+        assertThat(HttpRangeUtils.resolveRanges("bytes=10-100", 20)).containsExactly(new ByteRange(10, 19));
+    }
+
+    @Test
+    void resolveRanges_keepsRequestOrderOfMultipleRanges() {
+        assertThat(HttpRangeUtils.resolveRanges("bytes=10-12,0-1", 20))
+                .containsExactly(new ByteRange(10, 12), new ByteRange(0, 1));
+    }
+
+    @Test
+    void resolveRanges_rejectsUnsatisfiableRanges() {
+        assertThatThrownBy(() -> HttpRangeUtils.resolveRanges("bytes=20-30", 20)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HttpRangeUtils.resolveRanges("bytes=0-0", 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> HttpRangeUtils.resolveRanges("bytes=0-19,0-19", 20)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void resolveRanges_ignoresMalformedHeaders() {
+        assertThat(HttpRangeUtils.resolveRanges("lines=1-2", 20)).isEmpty();
+        assertThat(HttpRangeUtils.resolveRanges("bytes=5-2", 20)).isEmpty();
+        assertThat(HttpRangeUtils.resolveRanges("bytes=a-b", 20)).isEmpty();
+        assertThat(HttpRangeUtils.resolveRanges("bytes=5-2", 0)).isEmpty();
+    }
+
+    @Test
+    void ifRangeMatches_comparesEtagsStrongly() {
+        assertThat(HttpRangeUtils.ifRangeMatches(null, ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(HttpRangeUtils.ifRangeMatches(ETAG, ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(HttpRangeUtils.ifRangeMatches("\"other\"", ETAG, LAST_MODIFIED)).isFalse();
+        assertThat(HttpRangeUtils.ifRangeMatches("W/" + ETAG, ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    void ifRangeMatches_comparesDatesToTheSecond() {
+        String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(LAST_MODIFIED.atZone(ZoneOffset.UTC));
+        String earlier = DateTimeFormatter.RFC_1123_DATE_TIME.format(LAST_MODIFIED.minusSeconds(1).atZone(ZoneOffset.UTC));
+
+        assertThat(HttpRangeUtils.ifRangeMatches(lastModified, ETAG, LAST_MODIFIED.plusMillis(500))).isTrue();
+        assertThat(HttpRangeUtils.ifRangeMatches(earlier, ETAG, LAST_MODIFIED)).isFalse();
+        assertThat(HttpRangeUtils.ifRangeMatches("not a date", ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    void byteRange_describesContentRange() {
+        ByteRange byteRange = new ByteRange(16, 19);
+
+        assertThat(byteRange.length()).isEqualTo(4);
+        assertThat(byteRange.contentRange(20)).isEqualTo("bytes 16-19/20");
+    }
+}